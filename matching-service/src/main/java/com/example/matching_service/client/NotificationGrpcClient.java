@@ -1,52 +1,170 @@
 package com.example.matching_service.client;
 
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 import com.example.notification_service.proto.*;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
 
 import io.grpc.ManagedChannel;
-import io.grpc.ManagedChannelBuilder;
-import io.grpc.StatusRuntimeException;
+import io.grpc.Status;
+import io.grpc.stub.StreamObserver;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 
+/**
+ * Non-blocking client for notification-service. Every call carries a
+ * deadline, so a slow or unreachable server fails the returned future
+ * instead of holding a thread. Latency is recorded per method and status in
+ * {@code notification.grpc.client.latency}.
+ */
 @Component
 public class NotificationGrpcClient {
-  private final NotificationServiceGrpc.NotificationServiceBlockingStub blockingStub;
+  private final NotificationServiceGrpc.NotificationServiceFutureStub futureStub;
+  private final NotificationServiceGrpc.NotificationServiceStub asyncStub;
+  private final MeterRegistry meterRegistry;
+  private final long deadlineMs;
+  private final long streamDeadlineMs;
   private final Logger logger = LoggerFactory.getLogger(NotificationGrpcClient.class);
 
-  public NotificationGrpcClient() {
-    ManagedChannel channel = ManagedChannelBuilder
-        .forAddress("notification-service", 28084)
-        .usePlaintext()
-        .build();
-    if (channel.isShutdown() || channel.isTerminated()) {
-      logger.error("gRPC channel is not active");
-      throw new IllegalStateException("gRPC channel is not active");
-    }
-    this.blockingStub = NotificationServiceGrpc.newBlockingStub(channel);
+  public NotificationGrpcClient(ManagedChannel notificationChannel, MeterRegistry meterRegistry,
+      @Value("${matching.notification.grpc.deadline-ms:2000}") long deadlineMs,
+      @Value("${matching.notification.grpc.stream-deadline-ms:10000}") long streamDeadlineMs) {
+    this.futureStub = NotificationServiceGrpc.newFutureStub(notificationChannel);
+    this.asyncStub = NotificationServiceGrpc.newStub(notificationChannel);
+    this.meterRegistry = meterRegistry;
+    this.deadlineMs = deadlineMs;
+    this.streamDeadlineMs = streamDeadlineMs;
   }
 
-  public boolean sendNotification(String driverId, String title, String body) {
+  /**
+   * Completes with false when the server reports a failed push or the call
+   * fails; never completes exceptionally.
+   */
+  public CompletableFuture<Boolean> sendNotification(String driverId, String title, String body) {
     SendNotificationRequest request = SendNotificationRequest.newBuilder()
         .setDriverId(driverId)
         .setTitle(title)
         .setBody(body)
         .build();
+    return call("SendNotification",
+        futureStub.withDeadlineAfter(deadlineMs, TimeUnit.MILLISECONDS).sendNotification(request))
+        .thenApply(response -> {
+          if (!response.getSuccess()) {
+            logger.warn("Failed to send notification: {}", response.getMessage());
+          }
+          return response.getSuccess();
+        })
+        .exceptionally(e -> false);
+  }
 
-    SendNotificationResponse response = SendNotificationResponse.newBuilder()
-        .setSuccess(false)
-        .setMessage("Failed to send notification due to gRPC error")
+  /**
+   * Sends the same title/body to every driver in one RPC. Completes with the
+   * delivery status per driver; drivers missing from the map were not
+   * delivered.
+   */
+  public CompletableFuture<Map<String, Boolean>> sendBatchNotification(List<String> driverIds, String title,
+      String body) {
+    BatchNotificationRequest request = BatchNotificationRequest.newBuilder()
+        .addAllDriverIds(driverIds)
+        .setTitle(title)
+        .setBody(body)
         .build();
+    return call("SendBatchNotification",
+        futureStub.withDeadlineAfter(deadlineMs, TimeUnit.MILLISECONDS).sendBatchNotification(request))
+        .thenApply(NotificationGrpcClient::toStatusMap)
+        .exceptionally(e -> Map.of());
+  }
+
+  /**
+   * Streams many notifications over one call. Completes with the server's
+   * summary once every message has been dispatched, or with an empty map
+   * when the stream fails or runs past its deadline.
+   */
+  public CompletableFuture<Map<String, Boolean>> streamNotifications(List<SendNotificationRequest> requests) {
+    CompletableFuture<BatchNotificationResponse> summary = new CompletableFuture<>();
+    long started = System.nanoTime();
+    StreamObserver<SendNotificationRequest> stream = asyncStub
+        .withDeadlineAfter(streamDeadlineMs, TimeUnit.MILLISECONDS)
+        .streamNotifications(new StreamObserver<>() {
+          @Override
+          public void onNext(BatchNotificationResponse response) {
+            summary.complete(response);
+          }
+
+          @Override
+          public void onError(Throwable t) {
+            record("StreamNotifications", Status.fromThrowable(t), started);
+            summary.completeExceptionally(t);
+          }
+
+          @Override
+          public void onCompleted() {
+            record("StreamNotifications", Status.OK, started);
+            summary.complete(BatchNotificationResponse.getDefaultInstance());
+          }
+        });
     try {
-      response = blockingStub.sendNotification(request);
-    } catch (StatusRuntimeException e) {
-      logger.error("GRPC Status Code: " + e.getStatus().getCode().toString());
-      e.printStackTrace();
+      for (SendNotificationRequest request : requests) {
+        stream.onNext(request);
+      }
+      stream.onCompleted();
+    } catch (RuntimeException e) {
+      stream.onError(e);
     }
+    return summary
+        .thenApply(NotificationGrpcClient::toStatusMap)
+        .exceptionally(e -> {
+          logger.error("Notification stream failed: {}", Status.fromThrowable(e));
+          return Map.of();
+        });
+  }
+
+  private <T> CompletableFuture<T> call(String method, ListenableFuture<T> call) {
+    CompletableFuture<T> result = new CompletableFuture<>();
+    long started = System.nanoTime();
+    Futures.addCallback(call, new FutureCallback<>() {
+      @Override
+      public void onSuccess(T response) {
+        record(method, Status.OK, started);
+        result.complete(response);
+      }
+
+      @Override
+      public void onFailure(Throwable t) {
+        Status status = Status.fromThrowable(t);
+        record(method, status, started);
+        logger.error("{} failed: {}", method, status);
+        result.completeExceptionally(t);
+      }
+    }, MoreExecutors.directExecutor());
+    return result;
+  }
+
+  private void record(String method, Status status, long startedNanos) {
+    Timer.builder("notification.grpc.client.latency")
+        .tag("method", method)
+        .tag("status", status.getCode().name())
+        .publishPercentileHistogram()
+        .register(meterRegistry)
+        .record(System.nanoTime() - startedNanos, TimeUnit.NANOSECONDS);
+  }
 
-    if (!response.getSuccess()) {
-      System.err.println("Failed to send notification: " + response.getMessage());
+  private static Map<String, Boolean> toStatusMap(BatchNotificationResponse response) {
+    Map<String, Boolean> status = new HashMap<>();
+    for (RecipientResult result : response.getResultsList()) {
+      status.put(result.getDriverId(), result.getSuccess());
     }
-    return response.getSuccess();
+    return status;
   }
 }
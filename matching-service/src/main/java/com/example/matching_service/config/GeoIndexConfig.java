@@ -0,0 +1,20 @@
+package com.example.matching_service.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+import com.example.matching_service.geo.DriverGeoIndex;
+
+@Configuration
+@EnableScheduling
+public class GeoIndexConfig {
+  @Value("${matching.driver-index.cell-size-deg:0.01}")
+  private double cellSizeDeg;
+
+  @Bean
+  DriverGeoIndex driverGeoIndex() {
+    return new DriverGeoIndex(cellSizeDeg);
+  }
+}
@@ -0,0 +1,71 @@
+package com.example.matching_service.config;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import io.grpc.ManagedChannel;
+import io.grpc.ManagedChannelBuilder;
+
+/**
+ * One long-lived channel to notification-service shared by every stub. HTTP/2
+ * keepalive pings detect dead connections between offers instead of on the
+ * next send. Hedging is opt-in: it may deliver a push twice, so it only
+ * covers the unary sends and is off unless duplicate offers are acceptable.
+ */
+@Configuration
+public class GrpcClientConfig {
+  private static final Logger logger = LoggerFactory.getLogger(GrpcClientConfig.class);
+  private static final String NOTIFICATION_SERVICE = "NotificationService";
+
+  @Value("${matching.notification.grpc.target:dns:///notification-service:28084}")
+  private String target;
+
+  @Value("${matching.notification.grpc.keepalive-time-ms:30000}")
+  private long keepaliveTimeMs;
+
+  @Value("${matching.notification.grpc.keepalive-timeout-ms:10000}")
+  private long keepaliveTimeoutMs;
+
+  @Value("${matching.notification.grpc.hedging.enabled:false}")
+  private boolean hedgingEnabled;
+
+  @Value("${matching.notification.grpc.hedging.max-attempts:2}")
+  private int hedgingMaxAttempts;
+
+  @Value("${matching.notification.grpc.hedging.delay-ms:100}")
+  private long hedgingDelayMs;
+
+  @Bean(destroyMethod = "shutdownNow")
+  ManagedChannel notificationChannel() {
+    ManagedChannelBuilder<?> builder = ManagedChannelBuilder.forTarget(target)
+        .usePlaintext()
+        .keepAliveTime(keepaliveTimeMs, TimeUnit.MILLISECONDS)
+        .keepAliveTimeout(keepaliveTimeoutMs, TimeUnit.MILLISECONDS)
+        .keepAliveWithoutCalls(true);
+    if (hedgingEnabled) {
+      builder.defaultServiceConfig(hedgingServiceConfig()).enableRetry();
+      logger.info("Hedging notification sends: {} attempts, {} ms apart", hedgingMaxAttempts, hedgingDelayMs);
+    }
+    return builder.build();
+  }
+
+  private Map<String, ?> hedgingServiceConfig() {
+    Map<String, Object> hedgingPolicy = Map.of(
+        "maxAttempts", (double) hedgingMaxAttempts,
+        "hedgingDelay", (hedgingDelayMs / 1000.0) + "s",
+        "nonFatalStatusCodes", List.of("UNAVAILABLE"));
+    Map<String, Object> methodConfig = Map.of(
+        "name", List.of(
+            Map.of("service", NOTIFICATION_SERVICE, "method", "SendNotification"),
+            Map.of("service", NOTIFICATION_SERVICE, "method", "SendBatchNotification")),
+        "hedgingPolicy", hedgingPolicy);
+    return Map.of("methodConfig", List.of(methodConfig));
+  }
+}
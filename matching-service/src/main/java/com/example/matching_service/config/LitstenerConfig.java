@@ -1,17 +1,107 @@
 package com.example.matching_service.config;
 
+import java.util.List;
 import java.util.concurrent.Executor;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.listener.MessageListenerContainer;
 import org.springframework.scheduling.annotation.EnableAsync;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 
+import com.example.matching_service.scheduling.BoundedExecutor;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
 @Configuration
 @EnableAsync
 public class LitstenerConfig {
-    @Bean(name = "threadPoolTaskExecutor")
-    Executor threadPoolTaskExecutor() {
-        return new ThreadPoolTaskExecutor();
+  public static final String TRIP_LISTENER_ID = "trip-created-listener";
+  public static final String TRIP_BATCH_LISTENER_ID = "trip-created-batch-listener";
+  private static final Logger logger = LoggerFactory.getLogger(LitstenerConfig.class);
+
+  // "virtual" runs every task on its own virtual thread, "platform" on a fixed pool
+  @Value("${matching.executor.mode:platform}")
+  private String mode;
+
+  @Value("${matching.executor.pool-size:16}")
+  private int poolSize;
+
+  @Value("${matching.executor.max-concurrency:256}")
+  private int maxConcurrency;
+
+  // Below max-concurrency, so the listeners are paused before they would block on a permit
+  @Value("${matching.executor.pause-threshold:224}")
+  private int pauseThreshold;
+
+  @Value("${matching.executor.resume-threshold:64}")
+  private int resumeThreshold;
+
+  @Value("${matching.notification.max-concurrency:128}")
+  private int notificationConcurrency;
+
+  @Bean(name = "threadPoolTaskExecutor")
+  Executor threadPoolTaskExecutor(ObjectProvider<KafkaListenerEndpointRegistry> registry,
+      MeterRegistry meterRegistry) {
+    BoundedExecutor executor = new BoundedExecutor(
+        delegate("matching-"),
+        maxConcurrency,
+        pauseThreshold,
+        resumeThreshold,
+        () -> setTripListenersPaused(registry, true),
+        () -> setTripListenersPaused(registry, false));
+    Gauge.builder("matching.executor.in-flight", executor, BoundedExecutor::inFlight).register(meterRegistry);
+    Gauge.builder("matching.executor.running", executor, BoundedExecutor::running).register(meterRegistry);
+    return executor;
+  }
+
+  @Bean(name = "notificationExecutor")
+  Executor notificationExecutor(MeterRegistry meterRegistry) {
+    BoundedExecutor executor = new BoundedExecutor(delegate("notify-"), notificationConcurrency);
+    Gauge.builder("matching.notification.in-flight", executor, BoundedExecutor::inFlight).register(meterRegistry);
+    return executor;
+  }
+
+  private Executor delegate(String threadNamePrefix) {
+    if ("virtual".equalsIgnoreCase(mode)) {
+      SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor(threadNamePrefix);
+      executor.setVirtualThreads(true);
+      return executor;
+    }
+    ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+    executor.setThreadNamePrefix(threadNamePrefix);
+    executor.setCorePoolSize(poolSize);
+    executor.setMaxPoolSize(poolSize);
+    executor.initialize();
+    return executor;
+  }
+
+  // Both trip-created listeners feed this executor: the single-record one directly, the batch one
+  // through the wave and timer tasks; only the one that is running has a live container
+  private static void setTripListenersPaused(ObjectProvider<KafkaListenerEndpointRegistry> registry, boolean paused) {
+    KafkaListenerEndpointRegistry endpointRegistry = registry.getIfAvailable();
+    if (endpointRegistry == null) {
+      return;
+    }
+    for (String listenerId : List.of(TRIP_LISTENER_ID, TRIP_BATCH_LISTENER_ID)) {
+      MessageListenerContainer container = endpointRegistry.getListenerContainer(listenerId);
+      if (container == null || !container.isRunning()) {
+        continue;
+      }
+      if (paused) {
+        logger.warn("Too many matches in flight, pausing {}", listenerId);
+        container.pause();
+      } else {
+        logger.info("Matches drained, resuming {}", listenerId);
+        container.resume();
+      }
     }
+  }
 }
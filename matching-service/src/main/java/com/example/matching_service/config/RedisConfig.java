@@ -1,14 +1,18 @@
 package com.example.matching_service.config;
 
+import java.util.List;
+
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Primary;
+import org.springframework.core.io.ClassPathResource;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
 import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
 import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
 import org.springframework.data.redis.core.GeoOperations;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
 import org.springframework.data.redis.serializer.StringRedisSerializer;
 
 @Configuration
@@ -43,4 +47,9 @@ public class RedisConfig {
     return redisTemplate.opsForGeo();
   }
 
+  @Bean
+  @SuppressWarnings("rawtypes")
+  RedisScript<List> updateDriverPositionsScript() {
+    return RedisScript.of(new ClassPathResource("scripts/update_driver_positions.lua"), List.class);
+  }
 }
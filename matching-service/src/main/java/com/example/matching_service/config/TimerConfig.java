@@ -0,0 +1,24 @@
+package com.example.matching_service.config;
+
+import java.util.concurrent.Executor;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import com.example.matching_service.scheduling.HashedTimingWheel;
+
+@Configuration
+public class TimerConfig {
+  @Value("${matching.timer.tick-ms:100}")
+  private long tickMs;
+
+  @Value("${matching.timer.wheel-size:512}")
+  private int wheelSize;
+
+  @Bean(destroyMethod = "stop")
+  HashedTimingWheel matchingTimer(@Qualifier("threadPoolTaskExecutor") Executor executor) {
+    return new HashedTimingWheel(tickMs, wheelSize, executor, "matching-timer");
+  }
+}
@@ -0,0 +1,25 @@
+package com.example.matching_service.controller;
+
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.example.matching_service.dto.LocationBatchRequest;
+import com.example.matching_service.dto.LocationBatchResponse;
+import com.example.matching_service.geo.DriverLocationIngestor;
+
+import lombok.RequiredArgsConstructor;
+
+@RestController
+@RequestMapping("/api/drivers/locations")
+@RequiredArgsConstructor
+public class LocationIngestController {
+  private final DriverLocationIngestor locationIngestor;
+
+  @PostMapping
+  public ResponseEntity<LocationBatchResponse> ingest(@RequestBody LocationBatchRequest request) {
+    return ResponseEntity.accepted().body(locationIngestor.ingest(request.pings()));
+  }
+}
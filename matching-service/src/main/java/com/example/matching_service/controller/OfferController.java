@@ -0,0 +1,28 @@
+package com.example.matching_service.controller;
+
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.example.matching_service.dto.DriverDeclineRequest;
+import com.example.matching_service.geo.DriverReservationTable;
+
+import lombok.RequiredArgsConstructor;
+
+@RestController
+@RequestMapping("/api/offers")
+@RequiredArgsConstructor
+public class OfferController {
+  private final DriverReservationTable reservations;
+
+  @PostMapping("/{tripId}/decline")
+  public ResponseEntity<Void> declineOffer(@PathVariable Long tripId, @RequestBody DriverDeclineRequest request) {
+    if (!reservations.release(request.driverId(), tripId)) {
+      return ResponseEntity.notFound().build();
+    }
+    return ResponseEntity.noContent().build();
+  }
+}
@@ -0,0 +1,5 @@
+package com.example.matching_service.dto;
+
+public record DriverDeclineRequest(
+    String driverId) {
+}
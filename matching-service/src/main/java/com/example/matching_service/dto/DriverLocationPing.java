@@ -0,0 +1,10 @@
+package com.example.matching_service.dto;
+
+// inTrip only matters for a driver in neither geo set; otherwise membership follows the trip transitions
+public record DriverLocationPing(
+    String driverId,
+    double lat,
+    double lng,
+    boolean inTrip,
+    long timestamp) {
+}
@@ -0,0 +1,7 @@
+package com.example.matching_service.dto;
+
+import java.util.List;
+
+public record LocationBatchRequest(
+    List<DriverLocationPing> pings) {
+}
@@ -0,0 +1,6 @@
+package com.example.matching_service.dto;
+
+public record LocationBatchResponse(
+    int accepted,
+    int stale) {
+}
@@ -1,7 +1,9 @@
 package com.example.matching_service.dto;
 
-import java.math.BigDecimal;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 
+// TRIP_CREATED payloads carry more than the location (rider, fare)
+@JsonIgnoreProperties(ignoreUnknown = true)
 public record TripLocationData(
     double sourceLat,
     double sourceLng,
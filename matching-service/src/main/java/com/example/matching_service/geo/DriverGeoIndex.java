@@ -0,0 +1,314 @@
+package com.example.matching_service.geo;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Predicate;
+
+/**
+ * In-memory grid index of free drivers. The map is cut into square cells of
+ * {@code cellSizeDeg}; every cell keeps its drivers in parallel primitive
+ * arrays guarded by its own {@link StampedLock}, so writers on different cells
+ * never contend and readers use optimistic reads.
+ */
+public class DriverGeoIndex {
+  private static final double EARTH_RADIUS_KM = 6371.0088d;
+  private static final double KM_PER_DEG_LAT = 111.32d;
+
+  private final double cellSizeDeg;
+  private final Map<Long, Cell> cells = new ConcurrentHashMap<>();
+  private final Map<String, Slot> slots = new ConcurrentHashMap<>();
+
+  public DriverGeoIndex(double cellSizeDeg) {
+    if (cellSizeDeg <= 0) {
+      throw new IllegalArgumentException("cellSizeDeg must be positive");
+    }
+    this.cellSizeDeg = cellSizeDeg;
+  }
+
+  public record Neighbor(String driverId, double lat, double lng, double distanceKm) {
+  }
+
+  private record Slot(long cellKey, long updatedAt) {
+  }
+
+  public void update(String driverId, double lat, double lng) {
+    update(driverId, lat, lng, System.currentTimeMillis());
+  }
+
+  /**
+   * Moves a driver to the given position. Updates older than the one already
+   * stored are ignored, so a late resync snapshot never overwrites a fresher
+   * ping.
+   */
+  public boolean update(String driverId, double lat, double lng, long updatedAt) {
+    long newKey = cellKey(lat, lng);
+    boolean[] applied = { false };
+    slots.compute(driverId, (id, slot) -> {
+      if (slot != null && slot.updatedAt() > updatedAt) {
+        return slot;
+      }
+      if (slot != null && slot.cellKey() != newKey) {
+        Cell old = cells.get(slot.cellKey());
+        if (old != null) {
+          old.remove(id);
+        }
+      }
+      cells.computeIfAbsent(newKey, k -> new Cell()).put(id, lat, lng);
+      applied[0] = true;
+      return new Slot(newKey, updatedAt);
+    });
+    return applied[0];
+  }
+
+  public void remove(String driverId) {
+    slots.computeIfPresent(driverId, (id, slot) -> {
+      Cell cell = cells.get(slot.cellKey());
+      if (cell != null) {
+        cell.remove(id);
+      }
+      return null;
+    });
+  }
+
+  public boolean contains(String driverId) {
+    return slots.containsKey(driverId);
+  }
+
+  public int size() {
+    return slots.size();
+  }
+
+  public Set<String> driverIds() {
+    return slots.keySet();
+  }
+
+  /**
+   * Drops every driver that was not refreshed since {@code olderThan}. Used
+   * after a full resync to evict drivers that left the free set.
+   */
+  public int evictOlderThan(long olderThan) {
+    int evicted = 0;
+    for (Map.Entry<String, Slot> entry : slots.entrySet()) {
+      if (entry.getValue().updatedAt() < olderThan) {
+        String driverId = entry.getKey();
+        boolean[] removed = { false };
+        slots.computeIfPresent(driverId, (id, slot) -> {
+          if (slot.updatedAt() >= olderThan) {
+            return slot;
+          }
+          Cell cell = cells.get(slot.cellKey());
+          if (cell != null) {
+            cell.remove(id);
+          }
+          removed[0] = true;
+          return null;
+        });
+        if (removed[0]) {
+          evicted++;
+        }
+      }
+    }
+    return evicted;
+  }
+
+  public List<String> nearestIds(double lat, double lng, int limit, double radiusKm) {
+    return nearestIds(lat, lng, limit, radiusKm, id -> false);
+  }
+
+  public List<String> nearestIds(double lat, double lng, int limit, double radiusKm, Predicate<String> exclude) {
+    List<Neighbor> neighbors = nearest(lat, lng, limit, radiusKm, exclude);
+    List<String> ids = new ArrayList<>(neighbors.size());
+    for (Neighbor neighbor : neighbors) {
+      ids.add(neighbor.driverId());
+    }
+    return ids;
+  }
+
+  /**
+   * k-nearest search walking the grid ring by ring around the pickup cell.
+   * The walk stops once the closest possible point of the next ring is farther
+   * than the current k-th candidate or than {@code radiusKm}.
+   */
+  public List<Neighbor> nearest(double lat, double lng, int limit, double radiusKm, Predicate<String> exclude) {
+    if (limit <= 0) {
+      return List.of();
+    }
+    double cellHeightKm = cellSizeDeg * KM_PER_DEG_LAT;
+    double cellWidthKm = cellHeightKm * Math.max(Math.cos(Math.toRadians(lat)), 0.01d);
+    double minCellKm = Math.min(cellHeightKm, cellWidthKm);
+    int maxRingLat = (int) Math.ceil(radiusKm / cellHeightKm);
+    int maxRingLng = (int) Math.ceil(radiusKm / cellWidthKm);
+    int maxRing = Math.max(maxRingLat, maxRingLng);
+
+    int centerLat = latIndex(lat);
+    int centerLng = lngIndex(lng);
+    PriorityQueue<Neighbor> best = new PriorityQueue<>(limit + 1,
+        (a, b) -> Double.compare(b.distanceKm(), a.distanceKm()));
+
+    for (int ring = 0; ring <= maxRing; ring++) {
+      double ringMinKm = Math.max(0, ring - 1) * minCellKm;
+      if (ringMinKm > radiusKm) {
+        break;
+      }
+      if (best.size() == limit && ringMinKm > best.peek().distanceKm()) {
+        break;
+      }
+      for (int di = -ring; di <= ring; di++) {
+        if (Math.abs(di) > maxRingLat) {
+          continue;
+        }
+        boolean edgeRow = Math.abs(di) == ring;
+        int step = edgeRow ? 1 : 2 * ring;
+        for (int dj = -ring; dj <= ring; dj += step) {
+          if (Math.abs(dj) > maxRingLng) {
+            continue;
+          }
+          Cell cell = cells.get(pack(centerLat + di, centerLng + dj));
+          if (cell != null) {
+            cell.collect(lat, lng, radiusKm, limit, best, exclude);
+          }
+        }
+      }
+    }
+
+    Neighbor[] sorted = best.toArray(new Neighbor[0]);
+    Arrays.sort(sorted, (a, b) -> Double.compare(a.distanceKm(), b.distanceKm()));
+    return List.of(sorted);
+  }
+
+  long cellKey(double lat, double lng) {
+    return pack(latIndex(lat), lngIndex(lng));
+  }
+
+  private int latIndex(double lat) {
+    return (int) Math.floor(lat / cellSizeDeg);
+  }
+
+  private int lngIndex(double lng) {
+    return (int) Math.floor(lng / cellSizeDeg);
+  }
+
+  private static long pack(int latIdx, int lngIdx) {
+    return ((long) latIdx << 32) | (lngIdx & 0xffffffffL);
+  }
+
+  static double haversineKm(double lat1, double lng1, double lat2, double lng2) {
+    double dLat = Math.toRadians(lat2 - lat1);
+    double dLng = Math.toRadians(lng2 - lng1);
+    double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+        + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2))
+            * Math.sin(dLng / 2) * Math.sin(dLng / 2);
+    return 2 * EARTH_RADIUS_KM * Math.asin(Math.min(1, Math.sqrt(a)));
+  }
+
+  /**
+   * One grid cell. Drivers are stored densely in parallel arrays; removal
+   * swaps the last element into the hole so the arrays never fragment.
+   */
+  private static final class Cell {
+    private final StampedLock lock = new StampedLock();
+    private String[] ids = new String[4];
+    private double[] lats = new double[4];
+    private double[] lngs = new double[4];
+    private int size;
+
+    void put(String id, double lat, double lng) {
+      long stamp = lock.writeLock();
+      try {
+        int idx = indexOf(id);
+        if (idx < 0) {
+          if (size == ids.length) {
+            int capacity = size * 2;
+            ids = Arrays.copyOf(ids, capacity);
+            lats = Arrays.copyOf(lats, capacity);
+            lngs = Arrays.copyOf(lngs, capacity);
+          }
+          idx = size++;
+          ids[idx] = id;
+        }
+        lats[idx] = lat;
+        lngs[idx] = lng;
+      } finally {
+        lock.unlockWrite(stamp);
+      }
+    }
+
+    void remove(String id) {
+      long stamp = lock.writeLock();
+      try {
+        int idx = indexOf(id);
+        if (idx >= 0) {
+          int last = --size;
+          ids[idx] = ids[last];
+          lats[idx] = lats[last];
+          lngs[idx] = lngs[last];
+          ids[last] = null;
+        }
+      } finally {
+        lock.unlockWrite(stamp);
+      }
+    }
+
+    void collect(double lat, double lng, double radiusKm, int limit,
+        PriorityQueue<Neighbor> best, Predicate<String> exclude) {
+      String[] snapIds;
+      double[] snapLats;
+      double[] snapLngs;
+      int snapSize;
+      long stamp = lock.tryOptimisticRead();
+      snapIds = ids;
+      snapLats = lats;
+      snapLngs = lngs;
+      snapSize = size;
+      if (snapSize > 0) {
+        snapIds = Arrays.copyOf(snapIds, snapSize);
+        snapLats = Arrays.copyOf(snapLats, snapSize);
+        snapLngs = Arrays.copyOf(snapLngs, snapSize);
+      }
+      if (!lock.validate(stamp)) {
+        stamp = lock.readLock();
+        try {
+          snapSize = size;
+          snapIds = Arrays.copyOf(ids, snapSize);
+          snapLats = Arrays.copyOf(lats, snapSize);
+          snapLngs = Arrays.copyOf(lngs, snapSize);
+        } finally {
+          lock.unlockRead(stamp);
+        }
+      }
+
+      for (int i = 0; i < snapSize; i++) {
+        double distanceKm = haversineKm(lat, lng, snapLats[i], snapLngs[i]);
+        if (distanceKm > radiusKm) {
+          continue;
+        }
+        if (best.size() == limit && distanceKm >= best.peek().distanceKm()) {
+          continue;
+        }
+        String id = snapIds[i];
+        if (id == null || exclude.test(id)) {
+          continue;
+        }
+        best.offer(new Neighbor(id, snapLats[i], snapLngs[i], distanceKm));
+        if (best.size() > limit) {
+          best.poll();
+        }
+      }
+    }
+
+    private int indexOf(String id) {
+      for (int i = 0; i < size; i++) {
+        if (ids[i].equals(id)) {
+          return i;
+        }
+      }
+      return -1;
+    }
+  }
+}
@@ -0,0 +1,132 @@
+package com.example.matching_service.geo;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.geo.Point;
+import org.springframework.data.redis.core.GeoOperations;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Keeps {@link DriverGeoIndex} in line with {@code drivers:geo:free}. Redis
+ * stays the source of truth: the index is rebuilt from it on startup and then
+ * reconciled on a fixed delay, while fresher updates pushed into the index in
+ * between are never rolled back by an older snapshot. Drivers outside the
+ * regions this instance owns are left out (see {@link RegionOwnership}).
+ *
+ * State changes reach the index incrementally: every location flush adds or
+ * removes the driver depending on the geo set it is in, and accepted drivers
+ * are dropped as soon as matching stops. The full resync only reconciles what
+ * those missed (e.g. drivers that went offline) and runs on its own thread,
+ * off the shared scheduler.
+ */
+@Component
+@RequiredArgsConstructor
+public class DriverIndexSynchronizer {
+  public static final String FREE_DRIVERS_KEY = "drivers:geo:free";
+  private static final Logger logger = LoggerFactory.getLogger(DriverIndexSynchronizer.class);
+  private static final int POSITION_BATCH = 1000;
+
+  private final DriverGeoIndex index;
+  private final RedisTemplate<String, String> redisTemplate;
+  private final GeoOperations<String, String> geoOps;
+  private final RegionOwnership regionOwnership;
+  // Periodic and rebalance-triggered resyncs run here so neither the scheduler nor the
+  // Kafka consumer thread waits on the ZRANGE/GEOPOS round trips
+  private final ExecutorService resyncExecutor = Executors.newSingleThreadExecutor(
+      Thread.ofPlatform().name("driver-index-resync").daemon().factory());
+  private final AtomicBoolean resyncQueued = new AtomicBoolean();
+
+  @Value("${matching.driver-index.enabled:true}")
+  private boolean enabled;
+
+  private volatile boolean ready;
+
+  public boolean isReady() {
+    return enabled && ready;
+  }
+
+  @Scheduled(
+      initialDelayString = "${matching.driver-index.initial-delay-ms:0}",
+      fixedDelayString = "${matching.driver-index.resync-interval-ms:5000}")
+  public void scheduleResync() {
+    requestResync();
+  }
+
+  public synchronized void resync() {
+    if (!enabled) {
+      return;
+    }
+    long snapshotAt = System.currentTimeMillis();
+    try {
+      Set<String> members = redisTemplate.opsForZSet().range(FREE_DRIVERS_KEY, 0, -1);
+      int loaded = 0;
+      if (members != null && !members.isEmpty()) {
+        List<String> batch = new ArrayList<>(POSITION_BATCH);
+        for (String member : members) {
+          batch.add(member);
+          if (batch.size() == POSITION_BATCH) {
+            loaded += load(batch, snapshotAt);
+            batch.clear();
+          }
+        }
+        loaded += load(batch, snapshotAt);
+      }
+      int evicted = index.evictOlderThan(snapshotAt);
+      ready = true;
+      logger.debug("Driver index resynced: {} loaded, {} evicted, {} indexed", loaded, evicted, index.size());
+    } catch (Exception e) {
+      logger.error("Failed to resync driver index from Redis: {}", e.getMessage());
+    }
+  }
+
+  @EventListener
+  public void onOwnershipChanged(RegionOwnership.OwnershipChangedEvent event) {
+    requestResync();
+  }
+
+  private void requestResync() {
+    // Requests arriving while one is queued collapse into it
+    if (enabled && resyncQueued.compareAndSet(false, true)) {
+      resyncExecutor.execute(() -> {
+        resyncQueued.set(false);
+        resync();
+      });
+    }
+  }
+
+  @PreDestroy
+  void stop() {
+    resyncExecutor.shutdownNow();
+  }
+
+  private int load(List<String> driverIds, long snapshotAt) {
+    if (driverIds.isEmpty()) {
+      return 0;
+    }
+    List<Point> positions = geoOps.position(FREE_DRIVERS_KEY, driverIds.toArray(new String[0]));
+    int loaded = 0;
+    for (int i = 0; i < driverIds.size() && positions != null && i < positions.size(); i++) {
+      Point point = positions.get(i);
+      if (point != null
+          && regionOwnership.owns(point.getY(), point.getX())
+          && index.update(driverIds.get(i), point.getY(), point.getX(), snapshotAt)) {
+        loaded++;
+      }
+    }
+    return loaded;
+  }
+}
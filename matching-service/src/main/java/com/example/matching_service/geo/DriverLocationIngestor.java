@@ -0,0 +1,214 @@
+package com.example.matching_service.geo;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.example.matching_service.dto.DriverLocationPing;
+import com.example.matching_service.dto.LocationBatchResponse;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Driver location ingestion. Pings are coalesced in memory so only the latest
+ * position per driver survives until the next flush, which writes up to
+ * {@code matching.location.flush-batch-size} of them in one round trip.
+ * Pings older than what is already pending or flushed for that driver are
+ * dropped as stale.
+ *
+ * The write is a Lua script rather than one multi-member GEOADD per geo set:
+ * which set a driver belongs in is decided by the trip transitions, so the
+ * script checks membership (ZSCORE) and moves each driver within the set it
+ * is already in, atomically with respect to an accept or release. The
+ * client's {@code inTrip} flag is only used for a driver in neither set: one
+ * reporting itself free is added to {@code drivers:geo:free} (coming online),
+ * one reporting a trip is not written and counted in
+ * {@code matching.location.pings.offline}.
+ */
+@Component
+public class DriverLocationIngestor {
+  public static final String IN_TRIP_DRIVERS_KEY = "drivers:geo:intrip";
+  private static final Logger logger = LoggerFactory.getLogger(DriverLocationIngestor.class);
+
+  private static final long IN_FREE = 1;
+  private static final long IN_TRIP = 2;
+  private static final long ADDED_FREE = 3;
+
+  private final RedisTemplate<String, String> redisTemplate;
+  @SuppressWarnings("rawtypes")
+  private final RedisScript<List> updateDriverPositionsScript;
+  private final DriverGeoIndex driverIndex;
+  private final RegionOwnership regionOwnership;
+  private final GeoQueryCache geoQueryCache;
+  private final Map<String, DriverLocationPing> pending = new ConcurrentHashMap<>();
+  private final Map<String, Long> lastFlushed = new ConcurrentHashMap<>();
+  private final Counter acceptedPings;
+  private final Counter stalePings;
+  private final Counter offlinePings;
+  private final DistributionSummary flushSize;
+  private final Timer flushLag;
+  private final Timer flushDuration;
+
+  @Value("${matching.location.flush-batch-size:2000}")
+  private int flushBatchSize;
+
+  // Stale-ping protection only needs recent flushes; older entries are purged
+  @Value("${matching.location.flushed-retention-ms:600000}")
+  private long flushedRetentionMs;
+
+  @SuppressWarnings("rawtypes")
+  public DriverLocationIngestor(RedisTemplate<String, String> redisTemplate,
+      RedisScript<List> updateDriverPositionsScript, DriverGeoIndex driverIndex, RegionOwnership regionOwnership,
+      GeoQueryCache geoQueryCache, MeterRegistry meterRegistry) {
+    this.redisTemplate = redisTemplate;
+    this.updateDriverPositionsScript = updateDriverPositionsScript;
+    this.driverIndex = driverIndex;
+    this.regionOwnership = regionOwnership;
+    this.geoQueryCache = geoQueryCache;
+    this.acceptedPings = meterRegistry.counter("matching.location.pings.accepted");
+    this.stalePings = meterRegistry.counter("matching.location.pings.stale");
+    this.offlinePings = meterRegistry.counter("matching.location.pings.offline");
+    this.flushSize = DistributionSummary.builder("matching.location.flush.size")
+        .description("Drivers written per flush")
+        .register(meterRegistry);
+    this.flushLag = Timer.builder("matching.location.flush.lag")
+        .description("Age of the oldest ping at flush time")
+        .register(meterRegistry);
+    this.flushDuration = meterRegistry.timer("matching.location.flush.duration");
+    meterRegistry.gauge("matching.location.pending", pending, Map::size);
+    meterRegistry.gauge("matching.location.tracked", lastFlushed, Map::size);
+  }
+
+  public LocationBatchResponse ingest(List<DriverLocationPing> pings) {
+    if (pings == null) {
+      return new LocationBatchResponse(0, 0);
+    }
+    long now = System.currentTimeMillis();
+    int accepted = 0;
+    int stale = 0;
+    for (DriverLocationPing ping : pings) {
+      if (ping.driverId() == null) {
+        continue;
+      }
+      DriverLocationPing stamped = ping.timestamp() > 0 ? ping
+          : new DriverLocationPing(ping.driverId(), ping.lat(), ping.lng(), ping.inTrip(), now);
+      if (offer(stamped)) {
+        accepted++;
+      } else {
+        stale++;
+      }
+    }
+    acceptedPings.increment(accepted);
+    stalePings.increment(stale);
+    return new LocationBatchResponse(accepted, stale);
+  }
+
+  private boolean offer(DriverLocationPing ping) {
+    Long flushedAt = lastFlushed.get(ping.driverId());
+    if (flushedAt != null && flushedAt >= ping.timestamp()) {
+      return false;
+    }
+    boolean[] accepted = { true };
+    pending.merge(ping.driverId(), ping, (current, incoming) -> {
+      if (current.timestamp() >= incoming.timestamp()) {
+        accepted[0] = false;
+        return current;
+      }
+      return incoming;
+    });
+    return accepted[0];
+  }
+
+  @Scheduled(fixedDelayString = "${matching.location.flush-interval-ms:500}")
+  public void flush() {
+    if (pending.isEmpty()) {
+      return;
+    }
+    List<DriverLocationPing> batch = new ArrayList<>(Math.min(pending.size(), flushBatchSize));
+    for (String driverId : pending.keySet()) {
+      DriverLocationPing ping = pending.remove(driverId);
+      if (ping == null) {
+        continue;
+      }
+      batch.add(ping);
+      if (batch.size() == flushBatchSize) {
+        write(batch);
+        batch = new ArrayList<>(flushBatchSize);
+      }
+    }
+    write(batch);
+  }
+
+  @Scheduled(fixedDelayString = "${matching.location.flushed-purge-interval-ms:60000}")
+  public void purgeFlushed() {
+    long cutoff = System.currentTimeMillis() - flushedRetentionMs;
+    lastFlushed.values().removeIf(flushedAt -> flushedAt < cutoff);
+  }
+
+  private void write(List<DriverLocationPing> batch) {
+    if (batch.isEmpty()) {
+      return;
+    }
+    long now = System.currentTimeMillis();
+    long oldest = now;
+    List<String> args = new ArrayList<>(batch.size() * 4);
+    for (DriverLocationPing ping : batch) {
+      args.add(ping.driverId());
+      args.add(String.valueOf(ping.lng()));
+      args.add(String.valueOf(ping.lat()));
+      args.add(ping.inTrip() ? "1" : "0");
+      oldest = Math.min(oldest, ping.timestamp());
+    }
+
+    long start = System.nanoTime();
+    List<?> placed;
+    try {
+      placed = redisTemplate.execute(updateDriverPositionsScript,
+          List.of(DriverIndexSynchronizer.FREE_DRIVERS_KEY, IN_TRIP_DRIVERS_KEY), args.toArray());
+    } catch (Exception e) {
+      // Put the pings back unless a newer one arrived meanwhile; the next flush retries them.
+      logger.error("Failed to flush {} driver locations: {}", batch.size(), e.getMessage());
+      batch.forEach(this::offer);
+      return;
+    }
+    flushDuration.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+
+    for (int i = 0; i < batch.size(); i++) {
+      DriverLocationPing ping = batch.get(i);
+      long set = placed != null && i < placed.size() ? ((Number) placed.get(i)).longValue() : 0;
+      if (set == IN_FREE || set == ADDED_FREE) {
+        lastFlushed.merge(ping.driverId(), ping.timestamp(), Math::max);
+        if (regionOwnership.owns(ping.lat(), ping.lng())) {
+          driverIndex.update(ping.driverId(), ping.lat(), ping.lng(), now);
+        } else {
+          driverIndex.remove(ping.driverId());
+        }
+      } else {
+        // In a trip, or offline: not matchable, and offline drivers stop being tracked
+        if (set == IN_TRIP) {
+          lastFlushed.merge(ping.driverId(), ping.timestamp(), Math::max);
+        } else {
+          lastFlushed.remove(ping.driverId());
+          offlinePings.increment();
+        }
+        driverIndex.remove(ping.driverId());
+        geoQueryCache.invalidateDriver(ping.driverId());
+      }
+    }
+    flushSize.record(batch.size());
+    flushLag.record(Math.max(0, now - oldest), TimeUnit.MILLISECONDS);
+  }
+}
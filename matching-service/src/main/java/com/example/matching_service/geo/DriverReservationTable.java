@@ -0,0 +1,125 @@
+package com.example.matching_service.geo;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Soft reservations of drivers that currently hold an offer. A driver with a
+ * live lease is hidden from nearby searches, so each driver has at most one
+ * outstanding offer and accept attempts line up with offers. Leases end when
+ * they expire, when the driver declines, or when the trip stops matching.
+ */
+@Component
+public class DriverReservationTable {
+  private final Map<String, Lease> leases = new ConcurrentHashMap<>();
+  private final Map<Long, Set<String>> driversByTrip = new ConcurrentHashMap<>();
+
+  @Value("${matching.reservation.lease-ms:15000}")
+  private long leaseMs;
+
+  public record Lease(Long tripId, long expiresAt) {
+    boolean isExpired(long now) {
+      return expiresAt <= now;
+    }
+  }
+
+  public boolean reserve(String driverId, Long tripId) {
+    return reserve(driverId, tripId, leaseMs);
+  }
+
+  public boolean reserve(String driverId, Long tripId, long ttlMs) {
+    long now = System.currentTimeMillis();
+    Lease lease = new Lease(tripId, now + ttlMs);
+    Lease current = leases.compute(driverId, (id, existing) -> {
+      if (existing == null || existing.isExpired(now) || existing.tripId().equals(tripId)) {
+        return lease;
+      }
+      return existing;
+    });
+    if (current != lease) {
+      return false;
+    }
+    driversByTrip.computeIfAbsent(tripId, id -> ConcurrentHashMap.newKeySet()).add(driverId);
+    return true;
+  }
+
+  public boolean isReserved(String driverId) {
+    Lease lease = leases.get(driverId);
+    return lease != null && !lease.isExpired(System.currentTimeMillis());
+  }
+
+  // False once the driver declined, the lease ran out or the trip stopped matching
+  public boolean holds(String driverId, Long tripId) {
+    Lease lease = leases.get(driverId);
+    return lease != null && lease.tripId().equals(tripId) && !lease.isExpired(System.currentTimeMillis());
+  }
+
+  public Lease leaseOf(String driverId) {
+    return leases.get(driverId);
+  }
+
+  /**
+   * Releases one driver's lease, e.g. after an explicit decline. Returns false
+   * if the driver was not holding an offer for that trip.
+   */
+  public boolean release(String driverId, Long tripId) {
+    boolean[] released = { false };
+    leases.computeIfPresent(driverId, (id, lease) -> {
+      if (!lease.tripId().equals(tripId)) {
+        return lease;
+      }
+      released[0] = true;
+      return null;
+    });
+    Set<String> drivers = driversByTrip.get(tripId);
+    if (drivers != null) {
+      drivers.remove(driverId);
+    }
+    return released[0];
+  }
+
+  /**
+   * Releases every driver still holding an offer for the trip and returns them.
+   */
+  public List<String> releaseTrip(Long tripId) {
+    Set<String> drivers = driversByTrip.remove(tripId);
+    if (drivers == null) {
+      return List.of();
+    }
+    List<String> released = new ArrayList<>(drivers.size());
+    for (String driverId : drivers) {
+      Lease lease = leases.get(driverId);
+      if (lease != null && lease.tripId().equals(tripId) && leases.remove(driverId, lease)) {
+        released.add(driverId);
+      }
+    }
+    return released;
+  }
+
+  public int size() {
+    return leases.size();
+  }
+
+  @Scheduled(fixedDelayString = "${matching.reservation.purge-interval-ms:5000}")
+  public void purgeExpired() {
+    long now = System.currentTimeMillis();
+    leases.forEach((driverId, lease) -> {
+      if (lease.isExpired(now) && leases.remove(driverId, lease)) {
+        Set<String> drivers = driversByTrip.get(lease.tripId());
+        if (drivers != null) {
+          drivers.remove(driverId);
+          if (drivers.isEmpty()) {
+            driversByTrip.remove(lease.tripId(), drivers);
+          }
+        }
+      }
+    });
+  }
+}
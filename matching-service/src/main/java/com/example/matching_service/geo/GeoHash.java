@@ -0,0 +1,54 @@
+package com.example.matching_service.geo;
+
+/**
+ * Minimal geohash encoder (base32, interleaved lng/lat bits).
+ * <p>
+ * trip-service keys trip-created-events by this hash and matching-service
+ * maps the same hash to the partitions it owns, so both must agree. The
+ * services share no Java module, so an identical copy lives in
+ * trip-service (com.example.trip_service.geo). Apply every fix to both, and
+ * keep both GeoHashTest copies in step.
+ */
+public final class GeoHash {
+  private static final char[] BASE32 = "0123456789bcdefghjkmnpqrstuvwxyz".toCharArray();
+
+  private GeoHash() {
+  }
+
+  public static String encode(double lat, double lng, int precision) {
+    double minLat = -90, maxLat = 90;
+    double minLng = -180, maxLng = 180;
+    StringBuilder hash = new StringBuilder(precision);
+    boolean evenBit = true;
+    int bit = 0;
+    int ch = 0;
+    while (hash.length() < precision) {
+      if (evenBit) {
+        double mid = (minLng + maxLng) / 2;
+        if (lng >= mid) {
+          ch = (ch << 1) | 1;
+          minLng = mid;
+        } else {
+          ch <<= 1;
+          maxLng = mid;
+        }
+      } else {
+        double mid = (minLat + maxLat) / 2;
+        if (lat >= mid) {
+          ch = (ch << 1) | 1;
+          minLat = mid;
+        } else {
+          ch <<= 1;
+          maxLat = mid;
+        }
+      }
+      evenBit = !evenBit;
+      if (++bit == 5) {
+        hash.append(BASE32[ch]);
+        bit = 0;
+        ch = 0;
+      }
+    }
+    return hash.toString();
+  }
+}
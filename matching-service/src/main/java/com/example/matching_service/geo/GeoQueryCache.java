@@ -0,0 +1,185 @@
+package com.example.matching_service.geo;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Short-TTL cache of nearby-driver lookups for hot pickup spots, in front of
+ * both the local index and Redis. Entries are keyed by the pickup quantized
+ * to {@code cell-size-deg} plus the search radius and hold an over-fetched
+ * candidate list, so a burst of trips from the same place shares one index
+ * scan or GEORADIUS. Distances are recomputed against each caller's exact
+ * pickup, and reserved drivers are filtered by the caller.
+ * An entry is dropped as soon as one of its drivers leaves the free set;
+ * drivers that join or move are picked up when it expires.
+ */
+@Component
+public class GeoQueryCache {
+  private final Map<Key, Entry> entries = new ConcurrentHashMap<>();
+  private final Map<String, Set<Key>> keysByDriver = new ConcurrentHashMap<>();
+  private final Counter hits;
+  private final Counter misses;
+  private final Counter invalidations;
+  private final Timer hitAge;
+
+  @Value("${matching.geo-cache.enabled:true}")
+  private boolean enabled;
+
+  @Value("${matching.geo-cache.ttl-ms:2000}")
+  private long ttlMs;
+
+  @Value("${matching.geo-cache.cell-size-deg:0.002}")
+  private double cellSizeDeg;
+
+  @Value("${matching.geo-cache.candidates:30}")
+  private int candidates;
+
+  @Value("${matching.geo-cache.max-entries:10000}")
+  private int maxEntries;
+
+  public GeoQueryCache(MeterRegistry meterRegistry) {
+    this.hits = meterRegistry.counter("matching.geo-cache.hits");
+    this.misses = meterRegistry.counter("matching.geo-cache.misses");
+    this.invalidations = meterRegistry.counter("matching.geo-cache.invalidations");
+    this.hitAge = Timer.builder("matching.geo-cache.hit-age")
+        .description("Age of cache entries when served")
+        .register(meterRegistry);
+    meterRegistry.gauge("matching.geo-cache.size", entries, Map::size);
+  }
+
+  private record Key(long latCell, long lngCell, double radiusKm) {
+  }
+
+  private record Entry(List<DriverGeoIndex.Neighbor> candidates, boolean complete, long createdAt) {
+  }
+
+  /**
+   * Cached candidates re-ranked for this pickup. {@code complete} is true when
+   * Redis returned fewer drivers than were asked for, i.e. the list is the
+   * whole free set within the radius.
+   */
+  public record Cached(List<DriverGeoIndex.Neighbor> candidates, boolean complete, long ageMs) {
+  }
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  public int fetchLimit(int limit) {
+    return enabled ? Math.max(limit, candidates) : limit;
+  }
+
+  public Cached get(double lat, double lng, double radiusKm) {
+    if (!enabled) {
+      return null;
+    }
+    Key key = key(lat, lng, radiusKm);
+    Entry entry = entries.get(key);
+    long now = System.currentTimeMillis();
+    if (entry == null || now - entry.createdAt() > ttlMs) {
+      if (entry != null) {
+        remove(key, entry);
+      }
+      misses.increment();
+      return null;
+    }
+    List<DriverGeoIndex.Neighbor> ranked = new ArrayList<>(entry.candidates().size());
+    for (DriverGeoIndex.Neighbor candidate : entry.candidates()) {
+      double distanceKm = DriverGeoIndex.haversineKm(lat, lng, candidate.lat(), candidate.lng());
+      if (distanceKm <= radiusKm) {
+        ranked.add(new DriverGeoIndex.Neighbor(candidate.driverId(), candidate.lat(), candidate.lng(), distanceKm));
+      }
+    }
+    ranked.sort(Comparator.comparingDouble(DriverGeoIndex.Neighbor::distanceKm));
+    return new Cached(ranked, entry.complete(), now - entry.createdAt());
+  }
+
+  // The caller served the cached candidates; only then does the lookup count as a hit
+  public void recordHit(Cached cached) {
+    hits.increment();
+    hitAge.record(cached.ageMs(), TimeUnit.MILLISECONDS);
+  }
+
+  // The cached candidates were too few after filtering, so the caller went to Redis anyway
+  public void recordMiss() {
+    misses.increment();
+  }
+
+  public void put(double lat, double lng, double radiusKm, List<DriverGeoIndex.Neighbor> found, boolean complete) {
+    if (!enabled || entries.size() >= maxEntries) {
+      return;
+    }
+    Key key = key(lat, lng, radiusKm);
+    Entry entry = new Entry(List.copyOf(found), complete, System.currentTimeMillis());
+    Entry previous = entries.put(key, entry);
+    if (previous != null) {
+      unlink(key, previous);
+    }
+    for (DriverGeoIndex.Neighbor neighbor : found) {
+      keysByDriver.computeIfAbsent(neighbor.driverId(), id -> ConcurrentHashMap.newKeySet()).add(key);
+    }
+  }
+
+  /**
+   * Drops every entry that lists this driver, e.g. once the driver is in a
+   * trip or gone from {@code drivers:geo:free}.
+   */
+  public void invalidateDriver(String driverId) {
+    if (!enabled) {
+      return;
+    }
+    Set<Key> keys = keysByDriver.remove(driverId);
+    if (keys == null) {
+      return;
+    }
+    for (Key key : keys) {
+      Entry entry = entries.remove(key);
+      if (entry != null) {
+        invalidations.increment();
+        unlink(key, entry);
+      }
+    }
+  }
+
+  @Scheduled(fixedDelayString = "${matching.geo-cache.purge-interval-ms:5000}")
+  public void purgeExpired() {
+    long cutoff = System.currentTimeMillis() - ttlMs;
+    entries.forEach((key, entry) -> {
+      if (entry.createdAt() < cutoff) {
+        remove(key, entry);
+      }
+    });
+  }
+
+  private void remove(Key key, Entry entry) {
+    if (entries.remove(key, entry)) {
+      unlink(key, entry);
+    }
+  }
+
+  private void unlink(Key key, Entry entry) {
+    for (DriverGeoIndex.Neighbor neighbor : entry.candidates()) {
+      keysByDriver.computeIfPresent(neighbor.driverId(), (id, keys) -> {
+        keys.remove(key);
+        return keys.isEmpty() ? null : keys;
+      });
+    }
+  }
+
+  private Key key(double lat, double lng, double radiusKm) {
+    return new Key((long) Math.floor(lat / cellSizeDeg), (long) Math.floor(lng / cellSizeDeg), radiusKm);
+  }
+}
@@ -0,0 +1,210 @@
+package com.example.matching_service.geo;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+import org.springframework.data.geo.Circle;
+import org.springframework.data.geo.Distance;
+import org.springframework.data.geo.GeoResults;
+import org.springframework.data.geo.Metrics;
+import org.springframework.data.geo.Point;
+import org.springframework.data.redis.connection.RedisGeoCommands.GeoLocation;
+import org.springframework.data.redis.connection.RedisGeoCommands.GeoRadiusCommandArgs;
+import org.springframework.data.redis.connection.RedisGeoCommands.GeoSearchCommandArgs;
+import org.springframework.data.redis.core.GeoOperations;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.domain.geo.GeoReference;
+import org.springframework.data.redis.domain.geo.GeoShape;
+import org.springframework.stereotype.Component;
+
+import com.example.matching_service.dto.TripLocationData;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Nearby free-driver lookup. Served from {@link DriverGeoIndex} once it has
+ * been loaded, otherwise from a GEORADIUS on {@code drivers:geo:free}; both
+ * sit behind {@link GeoQueryCache}, so a burst from one pickup spot shares a
+ * single grid scan or Redis round trip.
+ */
+@Component
+@RequiredArgsConstructor
+public class NearbyDriverFinder {
+  // Extra Redis results fetched so that reserved drivers can be filtered out.
+  private static final int OVERFETCH = 10;
+
+  private final GeoOperations<String, String> geoOps;
+  private final RedisTemplate<String, String> redisTemplate;
+  private final DriverGeoIndex driverIndex;
+  private final DriverIndexSynchronizer driverIndexSynchronizer;
+  private final DriverReservationTable reservations;
+  private final GeoQueryCache geoQueryCache;
+
+  public List<DriverGeoIndex.Neighbor> findNearby(double lat, double lng, int limit, double radiusKm) {
+    return findNearby(lat, lng, limit, radiusKm, driverId -> false);
+  }
+
+  /**
+   * Drivers currently holding an offer (see {@link DriverReservationTable}) are
+   * always left out, on top of {@code exclude}.
+   */
+  public List<DriverGeoIndex.Neighbor> findNearby(double lat, double lng, int limit, double radiusKm,
+      Predicate<String> exclude) {
+    Predicate<String> skip = exclude.or(reservations::isReserved);
+    GeoQueryCache.Cached cached = geoQueryCache.get(lat, lng, radiusKm);
+    if (cached != null) {
+      List<DriverGeoIndex.Neighbor> selected = select(cached.candidates(), skip, limit);
+      if (selected.size() == limit || cached.complete()) {
+        geoQueryCache.recordHit(cached);
+        return selected;
+      }
+      geoQueryCache.recordMiss();
+    }
+    if (driverIndexSynchronizer.isReady()) {
+      return fromIndex(lat, lng, limit, radiusKm, skip, cached == null);
+    }
+
+    int fetchLimit = geoQueryCache.fetchLimit(limit) + OVERFETCH;
+    Circle circle = new Circle(
+        new Point(lng, lat),
+        new Distance(radiusKm, Metrics.KILOMETERS));
+    GeoRadiusCommandArgs args = GeoRadiusCommandArgs
+        .newGeoRadiusArgs()
+        .includeCoordinates()
+        .includeDistance()
+        .sortAscending()
+        .limit(fetchLimit);
+
+    GeoResults<GeoLocation<String>> results = geoOps.radius(DriverIndexSynchronizer.FREE_DRIVERS_KEY, circle, args);
+    List<DriverGeoIndex.Neighbor> found = results.getContent().stream()
+        .map(result -> new DriverGeoIndex.Neighbor(
+            result.getContent().getName(),
+            result.getContent().getPoint().getY(),
+            result.getContent().getPoint().getX(),
+            result.getDistance().getValue()))
+        .collect(Collectors.toList());
+    geoQueryCache.put(lat, lng, radiusKm, found, found.size() < fetchLimit);
+    return select(found, skip, limit);
+  }
+
+  /**
+   * Looks up candidates for several pickups at once. Without the local index
+   * all GEOSEARCH calls the cache cannot serve go out in a single Redis
+   * pipeline.
+   */
+  public List<List<DriverGeoIndex.Neighbor>> findNearbyBatch(List<TripLocationData> pickups, int limit,
+      double radiusKm) {
+    List<List<DriverGeoIndex.Neighbor>> results = new ArrayList<>(pickups.size());
+    if (pickups.isEmpty()) {
+      return results;
+    }
+    if (driverIndexSynchronizer.isReady()) {
+      for (TripLocationData pickup : pickups) {
+        results.add(findNearby(pickup.sourceLat(), pickup.sourceLng(), limit, radiusKm));
+      }
+      return results;
+    }
+
+    // Serve what the cache can, pipeline the rest.
+    List<Integer> missing = new ArrayList<>();
+    for (int i = 0; i < pickups.size(); i++) {
+      TripLocationData pickup = pickups.get(i);
+      GeoQueryCache.Cached cached = geoQueryCache.get(pickup.sourceLat(), pickup.sourceLng(), radiusKm);
+      List<DriverGeoIndex.Neighbor> selected = cached == null
+          ? null
+          : select(cached.candidates(), reservations::isReserved, limit);
+      if (selected != null && (selected.size() == limit || cached.complete())) {
+        geoQueryCache.recordHit(cached);
+        results.add(selected);
+      } else {
+        if (cached != null) {
+          geoQueryCache.recordMiss();
+        }
+        results.add(null);
+        missing.add(i);
+      }
+    }
+    if (missing.isEmpty()) {
+      return results;
+    }
+
+    int fetchLimit = geoQueryCache.fetchLimit(limit) + OVERFETCH;
+    byte[] key = DriverIndexSynchronizer.FREE_DRIVERS_KEY.getBytes(StandardCharsets.UTF_8);
+    GeoShape shape = GeoShape.byRadius(new Distance(radiusKm, Metrics.KILOMETERS));
+    GeoSearchCommandArgs args = GeoSearchCommandArgs
+        .newGeoSearchArgs()
+        .includeCoordinates()
+        .includeDistance()
+        .sortAscending()
+        .limit(fetchLimit);
+    List<Object> raw = redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+      for (int i : missing) {
+        TripLocationData pickup = pickups.get(i);
+        connection.geoCommands().geoSearch(
+            key,
+            GeoReference.fromCoordinate(pickup.sourceLng(), pickup.sourceLat()),
+            shape,
+            args);
+      }
+      return null;
+    });
+
+    for (int m = 0; m < missing.size(); m++) {
+      List<DriverGeoIndex.Neighbor> found = new ArrayList<>();
+      if (raw.get(m) instanceof GeoResults<?> geoResults) {
+        geoResults.getContent().forEach(geoResult -> {
+          GeoLocation<?> location = (GeoLocation<?>) geoResult.getContent();
+          Object name = location.getName();
+          String driverId = name instanceof byte[] bytes ? new String(bytes, StandardCharsets.UTF_8) : String.valueOf(name);
+          found.add(new DriverGeoIndex.Neighbor(
+              driverId,
+              location.getPoint().getY(),
+              location.getPoint().getX(),
+              geoResult.getDistance().getValue()));
+        });
+      }
+      TripLocationData pickup = pickups.get(missing.get(m));
+      geoQueryCache.put(pickup.sourceLat(), pickup.sourceLng(), radiusKm, found, found.size() < fetchLimit);
+      results.set(missing.get(m), select(found, reservations::isReserved, limit));
+    }
+    return results;
+  }
+
+  /**
+   * Index lookup. On a cache miss the unfiltered, over-fetched candidate list
+   * is cached like a Redis result; when filtering leaves too few drivers the
+   * index is asked again with the filter applied, which is exact.
+   */
+  private List<DriverGeoIndex.Neighbor> fromIndex(double lat, double lng, int limit, double radiusKm,
+      Predicate<String> skip, boolean populateCache) {
+    if (populateCache && geoQueryCache.isEnabled()) {
+      int fetchLimit = geoQueryCache.fetchLimit(limit) + OVERFETCH;
+      List<DriverGeoIndex.Neighbor> found = driverIndex.nearest(lat, lng, fetchLimit, radiusKm, driverId -> false);
+      boolean complete = found.size() < fetchLimit;
+      geoQueryCache.put(lat, lng, radiusKm, found, complete);
+      List<DriverGeoIndex.Neighbor> selected = select(found, skip, limit);
+      if (selected.size() == limit || complete) {
+        return selected;
+      }
+    }
+    return driverIndex.nearest(lat, lng, limit, radiusKm, skip);
+  }
+
+  private static List<DriverGeoIndex.Neighbor> select(List<DriverGeoIndex.Neighbor> candidates,
+      Predicate<String> skip, int limit) {
+    List<DriverGeoIndex.Neighbor> selected = new ArrayList<>(Math.min(limit, candidates.size()));
+    for (DriverGeoIndex.Neighbor candidate : candidates) {
+      if (selected.size() == limit) {
+        break;
+      }
+      if (!skip.test(candidate.driverId())) {
+        selected.add(candidate);
+      }
+    }
+    return selected;
+  }
+}
@@ -0,0 +1,155 @@
+package com.example.matching_service.geo;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.common.PartitionInfo;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.utils.Utils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.kafka.listener.ConsumerAwareRebalanceListener;
+import org.springframework.stereotype.Component;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Tracks which geo cells this instance owns when trip-service keys
+ * trip-created-events by pickup geohash ({@code trip.events.partition-key=geo-cell}).
+ * A cell belongs to the partition Kafka's default partitioner picks for its
+ * key, so owning a partition means owning every cell that hashes to it. In
+ * {@code geo-cell} mode only drivers in owned cells, plus a halo of
+ * {@code halo-km} around them, are kept in the local driver index.
+ */
+@Component
+@RequiredArgsConstructor
+public class RegionOwnership implements ConsumerAwareRebalanceListener {
+  public static final String TRIP_CREATED_TOPIC = "trip-created-events";
+  private static final Logger logger = LoggerFactory.getLogger(RegionOwnership.class);
+  private static final double KM_PER_DEG_LAT = 111.32d;
+
+  private final ApplicationEventPublisher eventPublisher;
+  private final Set<Integer> owned = new HashSet<>();
+  private volatile Set<Integer> ownedSnapshot = Set.of();
+  private volatile int partitionCount;
+
+  @Value("${matching.partition.mode:shared}")
+  private String mode;
+
+  @Value("${matching.partition.geo-cell-precision:5}")
+  private int geoCellPrecision;
+
+  @Value("${matching.partition.halo-km:5.0}")
+  private double haloKm;
+
+  public record OwnershipChangedEvent(Set<Integer> ownedPartitions) {
+  }
+
+  public boolean isGeoPartitioned() {
+    return "geo-cell".equalsIgnoreCase(mode);
+  }
+
+  /**
+   * True if a driver at this position is relevant to this instance. Always
+   * true outside {@code geo-cell} mode and before the first assignment.
+   */
+  public boolean owns(double lat, double lng) {
+    int partitions = partitionCount;
+    if (!isGeoPartitioned() || partitions == 0) {
+      return true;
+    }
+    Set<Integer> current = ownedSnapshot;
+    if (current.isEmpty()) {
+      return false;
+    }
+    return ownsCellNear(lat, lng, current, partitions);
+  }
+
+  // Every geohash cell that intersects the halo circle is checked, not just sample points
+  private boolean ownsCellNear(double lat, double lng, Set<Integer> current, int partitions) {
+    int latBits = geoCellPrecision * 5 / 2;
+    int lngBits = geoCellPrecision * 5 - latBits;
+    double cellLat = 180.0d / (1L << latBits);
+    double cellLng = 360.0d / (1L << lngBits);
+    double kmPerDegLng = KM_PER_DEG_LAT * Math.max(Math.cos(Math.toRadians(lat)), 0.01d);
+    double dLat = haloKm / KM_PER_DEG_LAT;
+    double dLng = haloKm / kmPerDegLng;
+
+    long latCells = 1L << latBits;
+    long lngCells = 1L << lngBits;
+    long fromRow = Math.max(0, (long) Math.floor((lat - dLat + 90) / cellLat));
+    long toRow = Math.min(latCells - 1, (long) Math.floor((lat + dLat + 90) / cellLat));
+    long fromCol = (long) Math.floor((lng - dLng + 180) / cellLng);
+    long toCol = (long) Math.floor((lng + dLng + 180) / cellLng);
+    for (long row = fromRow; row <= toRow; row++) {
+      double south = -90 + row * cellLat;
+      double nearestLat = Math.max(south, Math.min(lat, south + cellLat));
+      for (long col = fromCol; col <= toCol; col++) {
+        double west = -180 + col * cellLng;
+        double nearestLng = Math.max(west, Math.min(lng, west + cellLng));
+        double dy = (nearestLat - lat) * KM_PER_DEG_LAT;
+        double dx = (nearestLng - lng) * kmPerDegLng;
+        if (dx * dx + dy * dy > haloKm * haloKm) {
+          continue;
+        }
+        long wrappedCol = Math.floorMod(col, lngCells);
+        String cell = GeoHash.encode(south + cellLat / 2, -180 + (wrappedCol + 0.5) * cellLng, geoCellPrecision);
+        if (current.contains(partitionOf(cell, partitions))) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
+  static int partitionOf(String cell, int partitions) {
+    return Utils.toPositive(Utils.murmur2(cell.getBytes(StandardCharsets.UTF_8))) % partitions;
+  }
+
+  @Override
+  public void onPartitionsAssigned(Consumer<?, ?> consumer, Collection<TopicPartition> partitions) {
+    List<PartitionInfo> infos = consumer.partitionsFor(TRIP_CREATED_TOPIC);
+    if (infos != null && !infos.isEmpty()) {
+      partitionCount = infos.size();
+    }
+    update(partitions, true);
+  }
+
+  @Override
+  public void onPartitionsRevokedAfterCommit(Consumer<?, ?> consumer, Collection<TopicPartition> partitions) {
+    update(partitions, false);
+  }
+
+  @Override
+  public void onPartitionsLost(Consumer<?, ?> consumer, Collection<TopicPartition> partitions) {
+    update(partitions, false);
+  }
+
+  private void update(Collection<TopicPartition> partitions, boolean assigned) {
+    Set<Integer> snapshot;
+    synchronized (owned) {
+      boolean changed = false;
+      for (TopicPartition partition : partitions) {
+        if (!TRIP_CREATED_TOPIC.equals(partition.topic())) {
+          continue;
+        }
+        changed |= assigned ? owned.add(partition.partition()) : owned.remove(partition.partition());
+      }
+      if (!changed) {
+        return;
+      }
+      snapshot = Set.copyOf(owned);
+      ownedSnapshot = snapshot;
+    }
+    logger.info("Owned {} partitions: {}", TRIP_CREATED_TOPIC, snapshot);
+    if (isGeoPartitioned()) {
+      eventPublisher.publishEvent(new OwnershipChangedEvent(snapshot));
+    }
+  }
+}
@@ -0,0 +1,112 @@
+package com.example.matching_service.scheduling;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Executor wrapper that caps how many tasks are handed to the delegate at
+ * once. A permit is taken in {@link #execute} before the handoff and given
+ * back when the task finishes, so at most {@code maxConcurrency} tasks sit in
+ * the delegate's queue or run, and a caller beyond that blocks until one
+ * completes. {@code onSaturated} is called once the number of submitted but
+ * unfinished tasks, blocked callers included, reaches {@code highWatermark},
+ * and {@code onDrained} once it falls back to {@code lowWatermark}; pausing
+ * producers there keeps them from blocking at all.
+ */
+public class BoundedExecutor implements Executor {
+  private static final Logger logger = LoggerFactory.getLogger(BoundedExecutor.class);
+
+  private final Executor delegate;
+  private final Semaphore permits;
+  private final int maxConcurrency;
+  private final AtomicInteger inFlight = new AtomicInteger();
+  private final int highWatermark;
+  private final int lowWatermark;
+  private final Runnable onSaturated;
+  private final Runnable onDrained;
+  private boolean saturated;
+
+  public BoundedExecutor(Executor delegate, int maxConcurrency) {
+    this(delegate, maxConcurrency, Integer.MAX_VALUE, 0, () -> {
+    }, () -> {
+    });
+  }
+
+  public BoundedExecutor(Executor delegate, int maxConcurrency, int highWatermark, int lowWatermark,
+      Runnable onSaturated, Runnable onDrained) {
+    if (maxConcurrency <= 0) {
+      throw new IllegalArgumentException("maxConcurrency must be positive");
+    }
+    if (lowWatermark >= highWatermark) {
+      throw new IllegalArgumentException("lowWatermark must be below highWatermark");
+    }
+    this.delegate = delegate;
+    this.permits = new Semaphore(maxConcurrency);
+    this.maxConcurrency = maxConcurrency;
+    this.highWatermark = highWatermark;
+    this.lowWatermark = lowWatermark;
+    this.onSaturated = onSaturated;
+    this.onDrained = onDrained;
+  }
+
+  @Override
+  public void execute(Runnable task) {
+    inFlight.incrementAndGet();
+    updateBackpressure();
+    try {
+      permits.acquire();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      finished();
+      throw new RejectedExecutionException("Interrupted while waiting for a permit", e);
+    }
+    try {
+      delegate.execute(() -> {
+        try {
+          task.run();
+        } finally {
+          permits.release();
+          finished();
+        }
+      });
+    } catch (RejectedExecutionException e) {
+      permits.release();
+      finished();
+      throw e;
+    }
+  }
+
+  public int inFlight() {
+    return inFlight.get();
+  }
+
+  // Tasks holding a permit: queued in the delegate or running
+  public int running() {
+    return maxConcurrency - permits.availablePermits();
+  }
+
+  private void finished() {
+    inFlight.decrementAndGet();
+    updateBackpressure();
+  }
+
+  private synchronized void updateBackpressure() {
+    int current = inFlight.get();
+    try {
+      if (!saturated && current >= highWatermark) {
+        saturated = true;
+        onSaturated.run();
+      } else if (saturated && current <= lowWatermark) {
+        saturated = false;
+        onDrained.run();
+      }
+    } catch (Exception e) {
+      logger.error("Backpressure callback failed: {}", e.getMessage());
+    }
+  }
+}
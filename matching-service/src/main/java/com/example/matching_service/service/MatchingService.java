@@ -1,25 +1,19 @@
 package com.example.matching_service.service;
 
+import java.util.ArrayList;
 import java.util.List;
-import java.util.stream.Collectors;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.data.geo.Circle;
-import org.springframework.data.geo.Distance;
-import org.springframework.data.geo.GeoResults;
-import org.springframework.data.geo.Metrics;
-import org.springframework.data.geo.Point;
-import org.springframework.data.redis.connection.RedisGeoCommands.GeoLocation;
-import org.springframework.data.redis.connection.RedisGeoCommands.GeoRadiusCommandArgs;
-import org.springframework.data.redis.core.GeoOperations;
-import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.kafka.annotation.KafkaListener;
 import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
 
-import com.example.matching_service.client.NotificationGrpcClient;
+import com.example.matching_service.config.LitstenerConfig;
 import com.example.matching_service.dto.TripLocationData;
+import com.example.matching_service.geo.DriverGeoIndex;
+import com.example.matching_service.geo.NearbyDriverFinder;
 import com.example.trip_service.dto.TripEvent;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.JsonMappingException;
@@ -31,65 +25,109 @@ import lombok.RequiredArgsConstructor;
 @RequiredArgsConstructor
 class MatchingService {
   private static final Logger logger = LoggerFactory.getLogger(MatchingService.class);
-  private final NotificationGrpcClient notificationClient;
-  private final GeoOperations<String, String> geoOps;
+  private final TripOfferSender offerSender;
+  private final NearbyDriverFinder nearbyDriverFinder;
+  private final TripAssignmentBatcher assignmentBatcher;
+  private final OfferWaveScheduler offerWaveScheduler;
   private final ObjectMapper objectMapper = new ObjectMapper();
 
-  @KafkaListener(topics = "trip-created-events")
+  @Value("${matching.assignment.mode:broadcast}")
+  private String assignmentMode;
+
+  @Value("${matching.assignment.candidates-per-trip:5}")
+  private int candidatesPerTrip;
+
+  @Value("${matching.assignment.radius-km:10.0}")
+  private double radiusKm;
+
+  @KafkaListener(
+      id = LitstenerConfig.TRIP_LISTENER_ID,
+      idIsGroup = false,
+      topics = "trip-created-events",
+      autoStartup = "#{'${matching.kafka.batch.enabled:false}' != 'true'}")
   @Async("threadPoolTaskExecutor")
   public void listenForTripEvent(TripEvent tripEvent) throws JsonMappingException, JsonProcessingException {
     logger.info("MatchingService received trip events");
     TripLocationData tripData = objectMapper.readValue(tripEvent.getData(), TripLocationData.class);
     // logger.info("TripLocationData: {}", data.toString());
+    if ("batch".equalsIgnoreCase(assignmentMode)) {
+      assignmentBatcher.submit(tripEvent.getTripId(), tripData);
+      return;
+    }
+    if ("waves".equalsIgnoreCase(assignmentMode)) {
+      offerWaveScheduler.start(tripEvent.getTripId(), tripData);
+      return;
+    }
+
     List<String> driverIdList = findNearbyAvailableDrivers(
         tripData.sourceLat(),
         tripData.sourceLng(),
-        5,
-        10.0d);
+        candidatesPerTrip,
+        radiusKm);
 
     if(driverIdList.isEmpty()) {
       logger.info("No driver is free right now");
     }
 
-    for (String driverId : driverIdList) {
-      sendNotificationAsync(driverId, tripEvent.getTripId());
-    }
+    offerSender.sendOffers(tripEvent.getTripId(), driverIdList);
   }
 
-  @Async
-  private void sendNotificationAsync(String driverId, Long tripId) {
-    try {
-      notificationClient.sendNotification(
-          driverId,
-          "New Trip Offer",
-          "Do you wanna take the trip: " + tripId + " ?");
-      logger.info("Sent notification to driver {}", driverId);
-    } catch (Exception e) {
-      logger.error("Failed to send notification to driver {}: {}", driverId, e.getMessage());
+  /**
+   * Batch variant of {@link #listenForTripEvent}: each poll is handled as one
+   * unit, broadcast lookups for the whole batch share one Redis pipeline, and
+   * offsets are committed once the batch has been dispatched.
+   */
+  @KafkaListener(
+      id = LitstenerConfig.TRIP_BATCH_LISTENER_ID,
+      idIsGroup = false,
+      topics = "trip-created-events",
+      containerFactory = "batchKafkaListenerContainerFactory",
+      autoStartup = "${matching.kafka.batch.enabled:false}",
+      properties = "max.poll.records=${matching.kafka.batch.max-poll-records:500}")
+  public void listenForTripEventBatch(List<TripEvent> tripEvents) {
+    logger.info("MatchingService received {} trip events", tripEvents.size());
+    List<Long> tripIds = new ArrayList<>(tripEvents.size());
+    List<TripLocationData> pickups = new ArrayList<>(tripEvents.size());
+    for (TripEvent tripEvent : tripEvents) {
+      try {
+        pickups.add(objectMapper.readValue(tripEvent.getData(), TripLocationData.class));
+        tripIds.add(tripEvent.getTripId());
+      } catch (Exception e) {
+        logger.error("Skipping trip {} with unreadable location data: {}", tripEvent.getTripId(), e.getMessage());
+      }
+    }
+
+    if ("batch".equalsIgnoreCase(assignmentMode)) {
+      for (int i = 0; i < tripIds.size(); i++) {
+        assignmentBatcher.submit(tripIds.get(i), pickups.get(i));
+      }
+      return;
+    }
+    if ("waves".equalsIgnoreCase(assignmentMode)) {
+      for (int i = 0; i < tripIds.size(); i++) {
+        offerWaveScheduler.start(tripIds.get(i), pickups.get(i));
+      }
+      return;
+    }
+
+    // Offers for the whole poll go out in one notification stream
+    List<List<DriverGeoIndex.Neighbor>> candidates = nearbyDriverFinder.findNearbyBatch(pickups, candidatesPerTrip, radiusKm);
+    List<TripOfferSender.Offer> offers = new ArrayList<>();
+    for (int i = 0; i < tripIds.size(); i++) {
+      if (candidates.get(i).isEmpty()) {
+        logger.info("No driver is free right now for trip {}", tripIds.get(i));
+      }
+      for (DriverGeoIndex.Neighbor driver : candidates.get(i)) {
+        offers.add(new TripOfferSender.Offer(driver.driverId(), tripIds.get(i)));
+      }
     }
+    offerSender.sendOffers(offers);
   }
 
   private List<String> findNearbyAvailableDrivers(double lat, double lng, int limit, double radiusKm) {
-    // Geo search
-    Circle circle = new Circle(
-        new Point(lng, lat),
-        new Distance(radiusKm, Metrics.KILOMETERS)
-    );
-    GeoRadiusCommandArgs args = GeoRadiusCommandArgs
-      .newGeoRadiusArgs()
-      .sortAscending()
-      .limit(5);
-
-    GeoResults<GeoLocation<String>> results = geoOps.radius("drivers:geo:free", circle, args);
-    
-    var driverIdList =  results.getContent().stream()
-        .map(result -> {
-          String driverIdStr = result.getContent().getName();
-          return driverIdStr;
-        })
-        .collect(Collectors.toList());
-
-    return driverIdList;
+    return nearbyDriverFinder.findNearby(lat, lng, limit, radiusKm).stream()
+        .map(DriverGeoIndex.Neighbor::driverId)
+        .toList();
   }
 
 }
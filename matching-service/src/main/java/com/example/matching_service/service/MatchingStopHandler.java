@@ -0,0 +1,73 @@
+package com.example.matching_service.service;
+
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.stereotype.Component;
+
+import com.example.matching_service.geo.DriverGeoIndex;
+import com.example.matching_service.geo.DriverReservationTable;
+import com.example.matching_service.geo.GeoQueryCache;
+import com.example.trip_service.dto.StopMatchingCommand;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Handles StopMatchingCommand, published by trip-service when a trip is
+ * accepted or cancelled. Every instance reads every command (one consumer
+ * group per instance) because the trip's waves and reservations may live on
+ * any of them. The group is named after {@code matching.instance-id}, so a
+ * restarted instance resumes from its committed offset instead of leaving an
+ * orphaned group behind.
+ */
+@Component
+class MatchingStopHandler {
+  private static final Logger logger = LoggerFactory.getLogger(MatchingStopHandler.class);
+
+  private final StoppedTrips stoppedTrips;
+  private final OfferWaveScheduler offerWaveScheduler;
+  private final DriverReservationTable reservations;
+  private final DriverGeoIndex driverIndex;
+  private final GeoQueryCache geoQueryCache;
+  private final Counter stoppedCounter;
+  private final Counter releasedCounter;
+
+  MatchingStopHandler(StoppedTrips stoppedTrips, OfferWaveScheduler offerWaveScheduler,
+      DriverReservationTable reservations, DriverGeoIndex driverIndex, GeoQueryCache geoQueryCache,
+      MeterRegistry meterRegistry) {
+    this.stoppedTrips = stoppedTrips;
+    this.offerWaveScheduler = offerWaveScheduler;
+    this.reservations = reservations;
+    this.driverIndex = driverIndex;
+    this.geoQueryCache = geoQueryCache;
+    this.stoppedCounter = meterRegistry.counter("matching.stop.trips");
+    this.releasedCounter = meterRegistry.counter("matching.stop.released-offers");
+  }
+
+  @KafkaListener(
+      topics = "stop-matching-commands",
+      groupId = "matching-service-stop-${matching.instance-id}")
+  public void listenForStopCommand(StopMatchingCommand command) {
+    stop(command.getTripId(), command.getDriverId());
+  }
+
+  void stop(Long tripId, String acceptedDriverId) {
+    if (acceptedDriverId != null) {
+      // The driver is in drivers:geo:intrip now; do not wait for the next resync.
+      driverIndex.remove(acceptedDriverId);
+      geoQueryCache.invalidateDriver(acceptedDriverId);
+    }
+    if (!stoppedTrips.markStopped(tripId)) {
+      return;
+    }
+    boolean hadWaves = offerWaveScheduler.stop(tripId);
+    List<String> released = reservations.releaseTrip(tripId);
+    stoppedCounter.increment();
+    releasedCounter.increment(released.size());
+    logger.info("Stopped matching trip {} (waves cancelled: {}, offers released: {})",
+        tripId, hadWaves, released.size());
+  }
+}
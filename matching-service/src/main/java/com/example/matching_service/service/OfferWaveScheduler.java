@@ -0,0 +1,134 @@
+package com.example.matching_service.service;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.example.matching_service.dto.TripLocationData;
+import com.example.matching_service.geo.DriverGeoIndex;
+import com.example.matching_service.geo.NearbyDriverFinder;
+import com.example.matching_service.scheduling.HashedTimingWheel;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Wave matching mode. Each trip searches expanding rings
+ * ({@code matching.waves.radii-km}); a wave offers the trip to the nearest
+ * drivers not offered before and arms a timer on the shared
+ * {@link HashedTimingWheel}. If the trip is still being matched when the timer
+ * fires, the next ring is searched. Rings that turn up no new driver are
+ * skipped immediately.
+ */
+@Component
+@RequiredArgsConstructor
+class OfferWaveScheduler {
+  private static final Logger logger = LoggerFactory.getLogger(OfferWaveScheduler.class);
+
+  private final NearbyDriverFinder nearbyDriverFinder;
+  private final TripOfferSender offerSender;
+  private final HashedTimingWheel matchingTimer;
+  private final StoppedTrips stoppedTrips;
+  private final Map<Long, WaveSession> sessions = new ConcurrentHashMap<>();
+
+  @Value("${matching.waves.radii-km:1,3,6,10}")
+  private double[] radiiKm;
+
+  @Value("${matching.waves.offers-per-wave:5}")
+  private int offersPerWave;
+
+  @Value("${matching.waves.timeout-ms:15000}")
+  private long waveTimeoutMs;
+
+  private static final class WaveSession {
+    private final Long tripId;
+    private final TripLocationData location;
+    private final Set<String> offered = ConcurrentHashMap.newKeySet();
+    private int wave;
+    private volatile HashedTimingWheel.Timeout timeout;
+
+    private WaveSession(Long tripId, TripLocationData location) {
+      this.tripId = tripId;
+      this.location = location;
+    }
+  }
+
+  void start(Long tripId, TripLocationData location) {
+    if (stoppedTrips.isStopped(tripId)) {
+      return;
+    }
+    WaveSession session = new WaveSession(tripId, location);
+    if (sessions.putIfAbsent(tripId, session) != null) {
+      logger.info("Trip {} is already being matched", tripId);
+      return;
+    }
+    runWave(session);
+  }
+
+  /**
+   * Stops matching a trip, e.g. once it has been accepted or cancelled.
+   */
+  boolean stop(Long tripId) {
+    WaveSession session = sessions.remove(tripId);
+    if (session == null) {
+      return false;
+    }
+    HashedTimingWheel.Timeout timeout = session.timeout;
+    if (timeout != null) {
+      timeout.cancel();
+    }
+    return true;
+  }
+
+  boolean isMatching(Long tripId) {
+    return sessions.containsKey(tripId);
+  }
+
+  int activeSessions() {
+    return sessions.size();
+  }
+
+  private void runWave(WaveSession session) {
+    synchronized (session) {
+      while (sessions.get(session.tripId) == session && session.wave < radiiKm.length) {
+        double radiusKm = radiiKm[session.wave];
+        List<DriverGeoIndex.Neighbor> drivers = nearbyDriverFinder.findNearby(
+            session.location.sourceLat(),
+            session.location.sourceLng(),
+            offersPerWave,
+            radiusKm,
+            session.offered::contains);
+        session.wave++;
+        List<TripOfferSender.Offer> offers = offerSender.sendOffers(session.tripId,
+            drivers.stream().map(DriverGeoIndex.Neighbor::driverId).toList());
+        for (TripOfferSender.Offer offer : offers) {
+          session.offered.add(offer.driverId());
+        }
+        int sent = offers.size();
+        if (sent == 0) {
+          continue;
+        }
+        logger.info("Trip {} wave {} ({} km): offered to {} drivers",
+            session.tripId, session.wave, radiusKm, sent);
+        session.timeout = matchingTimer.schedule(() -> runWave(session), waveTimeoutMs, TimeUnit.MILLISECONDS);
+        return;
+      }
+      if (sessions.remove(session.tripId, session)) {
+        if (session.offered.isEmpty()) {
+          logger.info("No driver is free right now for trip {} within {} km",
+              session.tripId, radiiKm[radiiKm.length - 1]);
+        } else {
+          logger.info("Trip {} was not accepted by any of {} drivers after {} waves (radii {})",
+              session.tripId, session.offered.size(), radiiKm.length, Arrays.toString(radiiKm));
+        }
+      }
+    }
+  }
+}
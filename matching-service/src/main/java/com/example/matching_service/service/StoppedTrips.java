@@ -0,0 +1,35 @@
+package com.example.matching_service.service;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Trips that must not be offered any more because they were accepted or
+ * cancelled. Entries are kept for {@code matching.stop.retention-ms} so that
+ * queued offers and late trip-created events for the same trip are dropped.
+ */
+@Component
+class StoppedTrips {
+  private final Map<Long, Long> stoppedAt = new ConcurrentHashMap<>();
+
+  @Value("${matching.stop.retention-ms:600000}")
+  private long retentionMs;
+
+  boolean markStopped(Long tripId) {
+    return stoppedAt.putIfAbsent(tripId, System.currentTimeMillis()) == null;
+  }
+
+  boolean isStopped(Long tripId) {
+    return stoppedAt.containsKey(tripId);
+  }
+
+  @Scheduled(fixedDelayString = "${matching.stop.purge-interval-ms:60000}")
+  void purge() {
+    long cutoff = System.currentTimeMillis() - retentionMs;
+    stoppedAt.values().removeIf(at -> at < cutoff);
+  }
+}
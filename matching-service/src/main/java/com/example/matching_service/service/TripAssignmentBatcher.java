@@ -0,0 +1,178 @@
+package com.example.matching_service.service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.example.matching_service.dto.TripLocationData;
+import com.example.matching_service.geo.DriverGeoIndex;
+import com.example.matching_service.geo.DriverReservationTable;
+import com.example.matching_service.geo.NearbyDriverFinder;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Batch assignment mode. Trip-created events are buffered for one window and
+ * then matched together: every trip gets a bounded candidate list, all
+ * (trip, driver) pairs are sorted by pickup distance and taken greedily so a
+ * driver receives at most one offer per window. Trips left without a driver
+ * are carried over to the next window until {@code matching.assignment.max-wait-ms}
+ * has passed since they were submitted; a trip given up on is logged and
+ * counted in {@code matching.assignment.unmatched}. A trip whose offer was
+ * declined or timed out goes back into the next window too, minus the drivers
+ * it was already offered to, until a stop command arrives.
+ */
+@Component
+class TripAssignmentBatcher {
+  private static final Logger logger = LoggerFactory.getLogger(TripAssignmentBatcher.class);
+
+  private final NearbyDriverFinder nearbyDriverFinder;
+  private final TripOfferSender offerSender;
+  private final StoppedTrips stoppedTrips;
+  private final DriverReservationTable reservations;
+  private final Queue<PendingTrip> pending = new ConcurrentLinkedQueue<>();
+  // Trips whose single offer is still out, keyed by trip id
+  private final Map<Long, Offered> awaiting = new ConcurrentHashMap<>();
+  private final Counter unmatched;
+
+  @Value("${matching.assignment.candidates-per-trip:5}")
+  private int candidatesPerTrip;
+
+  @Value("${matching.assignment.radius-km:10.0}")
+  private double radiusKm;
+
+  // Same budget as trip-service's trip.lifecycle.match-timeout-ms, which cancels the trip afterwards
+  @Value("${matching.assignment.max-wait-ms:300000}")
+  private long maxWaitMs;
+
+  // submittedAt: epoch millis of the first submit; offered: drivers already offered this trip, skipped later
+  record PendingTrip(Long tripId, TripLocationData location, long submittedAt, Set<String> offered) {
+  }
+
+  private record Offered(PendingTrip trip, String driverId) {
+  }
+
+  record Assignment(Long tripId, String driverId, double distanceKm) {
+  }
+
+  private record Edge(int trip, String driverId, double distanceKm) {
+  }
+
+  TripAssignmentBatcher(NearbyDriverFinder nearbyDriverFinder, TripOfferSender offerSender,
+      StoppedTrips stoppedTrips, DriverReservationTable reservations, MeterRegistry meterRegistry) {
+    this.nearbyDriverFinder = nearbyDriverFinder;
+    this.offerSender = offerSender;
+    this.stoppedTrips = stoppedTrips;
+    this.reservations = reservations;
+    this.unmatched = meterRegistry.counter("matching.assignment.unmatched");
+  }
+
+  void submit(Long tripId, TripLocationData location) {
+    pending.add(new PendingTrip(tripId, location, System.currentTimeMillis(), Set.of()));
+  }
+
+  @Scheduled(fixedDelayString = "${matching.assignment.window-ms:200}")
+  void flush() {
+    requeueEndedOffers();
+    if (pending.isEmpty()) {
+      return;
+    }
+    List<PendingTrip> window = new ArrayList<>();
+    PendingTrip trip;
+    while ((trip = pending.poll()) != null) {
+      if (!stoppedTrips.isStopped(trip.tripId())) {
+        window.add(trip);
+      }
+    }
+    if (window.isEmpty()) {
+      return;
+    }
+
+    List<Assignment> assignments = assign(window);
+    List<TripOfferSender.Offer> offers = new ArrayList<>(assignments.size());
+    for (Assignment assignment : assignments) {
+      offers.add(new TripOfferSender.Offer(assignment.driverId(), assignment.tripId()));
+    }
+    Map<Long, String> assigned = new HashMap<>();
+    for (TripOfferSender.Offer offer : offerSender.sendOffers(offers)) {
+      assigned.put(offer.tripId(), offer.driverId());
+    }
+
+    for (PendingTrip windowTrip : window) {
+      String driverId = assigned.get(windowTrip.tripId());
+      if (driverId != null) {
+        awaiting.put(windowTrip.tripId(), new Offered(windowTrip, driverId));
+      } else {
+        retry(windowTrip, windowTrip.offered());
+      }
+    }
+    logger.info("Assignment window: {} trips, {} offers", window.size(), assigned.size());
+  }
+
+  // Offers that were declined or expired without a stop command put their trip back in line
+  private void requeueEndedOffers() {
+    awaiting.forEach((tripId, offered) -> {
+      if (stoppedTrips.isStopped(tripId)) {
+        awaiting.remove(tripId, offered);
+      } else if (!reservations.holds(offered.driverId(), tripId) && awaiting.remove(tripId, offered)) {
+        Set<String> excluded = new HashSet<>(offered.trip().offered());
+        excluded.add(offered.driverId());
+        retry(offered.trip(), Set.copyOf(excluded));
+      }
+    });
+  }
+
+  private void retry(PendingTrip trip, Set<String> offered) {
+    long waitedMs = System.currentTimeMillis() - trip.submittedAt();
+    if (waitedMs < maxWaitMs) {
+      pending.add(new PendingTrip(trip.tripId(), trip.location(), trip.submittedAt(), offered));
+    } else {
+      unmatched.increment();
+      logger.warn("No driver took trip {} after {} ms ({} offered), giving up",
+          trip.tripId(), waitedMs, offered.size());
+    }
+  }
+
+  List<Assignment> assign(List<PendingTrip> window) {
+    List<Edge> edges = new ArrayList<>();
+    for (int i = 0; i < window.size(); i++) {
+      TripLocationData location = window.get(i).location();
+      Set<String> offered = window.get(i).offered();
+      for (DriverGeoIndex.Neighbor neighbor : nearbyDriverFinder.findNearby(
+          location.sourceLat(), location.sourceLng(), candidatesPerTrip, radiusKm, offered::contains)) {
+        edges.add(new Edge(i, neighbor.driverId(), neighbor.distanceKm()));
+      }
+    }
+    edges.sort(Comparator.comparingDouble(Edge::distanceKm));
+
+    boolean[] tripTaken = new boolean[window.size()];
+    Set<String> driverTaken = new HashSet<>();
+    List<Assignment> assignments = new ArrayList<>();
+    for (Edge edge : edges) {
+      if (tripTaken[edge.trip()] || driverTaken.contains(edge.driverId())) {
+        continue;
+      }
+      tripTaken[edge.trip()] = true;
+      driverTaken.add(edge.driverId());
+      assignments.add(new Assignment(window.get(edge.trip()).tripId(), edge.driverId(), edge.distanceKm()));
+      if (assignments.size() == window.size()) {
+        break;
+      }
+    }
+    return assignments;
+  }
+}
@@ -0,0 +1,129 @@
+package com.example.matching_service.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Component;
+
+import com.example.matching_service.client.NotificationGrpcClient;
+import com.example.matching_service.geo.DriverReservationTable;
+import com.example.notification_service.proto.SendNotificationRequest;
+
+/**
+ * Sends trip offers to drivers. A fan-out is one non-blocking RPC: offers for
+ * a single trip share a batch call, offers spanning several trips go over one
+ * client stream, so the caller never waits on a gRPC round trip. A driver is
+ * reserved for the trip before the offer goes out and released again if it
+ * cannot be delivered; delivery results are handled on the notification
+ * executor. Offers for stopped trips are dropped.
+ */
+@Component
+class TripOfferSender {
+  private static final Logger logger = LoggerFactory.getLogger(TripOfferSender.class);
+  private static final String OFFER_TITLE = "New Trip Offer";
+  private final NotificationGrpcClient notificationClient;
+  private final Executor notificationExecutor;
+  private final DriverReservationTable reservations;
+  private final StoppedTrips stoppedTrips;
+
+  record Offer(String driverId, Long tripId) {
+  }
+
+  TripOfferSender(NotificationGrpcClient notificationClient,
+      @Qualifier("notificationExecutor") Executor notificationExecutor,
+      DriverReservationTable reservations,
+      StoppedTrips stoppedTrips) {
+    this.notificationClient = notificationClient;
+    this.notificationExecutor = notificationExecutor;
+    this.reservations = reservations;
+    this.stoppedTrips = stoppedTrips;
+  }
+
+  /**
+   * Returns false without sending anything when the driver already holds an
+   * offer for another trip.
+   */
+  boolean sendOffer(String driverId, Long tripId) {
+    return !sendOffers(List.of(new Offer(driverId, tripId))).isEmpty();
+  }
+
+  List<Offer> sendOffers(Long tripId, List<String> driverIds) {
+    List<Offer> offers = new ArrayList<>(driverIds.size());
+    for (String driverId : driverIds) {
+      offers.add(new Offer(driverId, tripId));
+    }
+    return sendOffers(offers);
+  }
+
+  /**
+   * Reserves every driver that is still free and sends their offers in the
+   * background. Returns the offers that were reserved; drivers already
+   * holding another offer and offers for stopped trips are left out.
+   */
+  List<Offer> sendOffers(List<Offer> offers) {
+    List<Offer> reserved = new ArrayList<>(offers.size());
+    for (Offer offer : offers) {
+      if (stoppedTrips.isStopped(offer.tripId())) {
+        continue;
+      }
+      if (!reservations.reserve(offer.driverId(), offer.tripId())) {
+        logger.debug("Driver {} already holds an offer, skipping trip {}", offer.driverId(), offer.tripId());
+        continue;
+      }
+      reserved.add(offer);
+    }
+    if (!reserved.isEmpty()) {
+      List<Offer> batch = List.copyOf(reserved);
+      deliver(batch).whenCompleteAsync((delivered, error) -> onDelivered(batch, delivered), notificationExecutor);
+    }
+    return reserved;
+  }
+
+  private void onDelivered(List<Offer> offers, Map<String, Boolean> delivered) {
+    int sent = 0;
+    for (Offer offer : offers) {
+      if (delivered != null && Boolean.TRUE.equals(delivered.get(offer.driverId()))) {
+        sent++;
+      } else {
+        reservations.release(offer.driverId(), offer.tripId());
+      }
+    }
+    if (sent < offers.size()) {
+      logger.warn("Delivered {}/{} trip offers, released the rest", sent, offers.size());
+    } else {
+      logger.info("Sent {} trip offers", sent);
+    }
+  }
+
+  private CompletableFuture<Map<String, Boolean>> deliver(List<Offer> offers) {
+    Long tripId = offers.get(0).tripId();
+    if (offers.size() == 1) {
+      String driverId = offers.get(0).driverId();
+      return notificationClient.sendNotification(driverId, OFFER_TITLE, offerBody(tripId))
+          .thenApply(sent -> Map.of(driverId, sent));
+    }
+    if (offers.stream().allMatch(offer -> offer.tripId().equals(tripId))) {
+      return notificationClient.sendBatchNotification(
+          offers.stream().map(Offer::driverId).toList(), OFFER_TITLE, offerBody(tripId));
+    }
+    List<SendNotificationRequest> requests = new ArrayList<>(offers.size());
+    for (Offer offer : offers) {
+      requests.add(SendNotificationRequest.newBuilder()
+          .setDriverId(offer.driverId())
+          .setTitle(OFFER_TITLE)
+          .setBody(offerBody(offer.tripId()))
+          .build());
+    }
+    return notificationClient.streamNotifications(requests);
+  }
+
+  private static String offerBody(Long tripId) {
+    return "Do you wanna take the trip: " + tripId + " ?";
+  }
+}
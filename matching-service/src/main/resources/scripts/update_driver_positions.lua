@@ -0,0 +1,23 @@
+-- Moves drivers within the geo set they are already in; never moves them between sets.
+-- A driver in neither set that reports itself free is added to the free set (coming online).
+-- KEYS[1] free drivers, KEYS[2] in-trip drivers
+-- ARGV driver id, lng, lat, inTrip (1/0) quadruples
+-- Returns one code per driver: 1 updated in free, 2 updated in in-trip, 3 added to free,
+-- 0 in neither and reporting in-trip (not written).
+local placed = {}
+for i = 1, #ARGV, 4 do
+  local id = ARGV[i]
+  local code = 0
+  if redis.call('ZSCORE', KEYS[1], id) then
+    redis.call('GEOADD', KEYS[1], ARGV[i + 1], ARGV[i + 2], id)
+    code = 1
+  elseif redis.call('ZSCORE', KEYS[2], id) then
+    redis.call('GEOADD', KEYS[2], ARGV[i + 1], ARGV[i + 2], id)
+    code = 2
+  elseif ARGV[i + 3] == '0' then
+    redis.call('GEOADD', KEYS[1], ARGV[i + 1], ARGV[i + 2], id)
+    code = 3
+  end
+  placed[#placed + 1] = code
+end
+return placed
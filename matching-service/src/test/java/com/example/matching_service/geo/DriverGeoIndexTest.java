@@ -0,0 +1,54 @@
+package com.example.matching_service.geo;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class DriverGeoIndexTest {
+  private final DriverGeoIndex index = new DriverGeoIndex(0.01d);
+
+  @Test
+  void nearestReturnsClosestDriversInAscendingOrder() {
+    index.update("far", 10.8500, 106.7000);
+    index.update("near", 10.8232, 106.6298);
+    index.update("mid", 10.8300, 106.6400);
+    index.update("outside", 11.5000, 107.5000);
+
+    List<String> ids = index.nearestIds(10.8231, 106.6297, 5, 10.0d);
+
+    assertThat(ids).containsExactly("near", "mid", "far");
+  }
+
+  @Test
+  void nearestHonoursLimitAndExclusion() {
+    index.update("a", 10.8231, 106.6297);
+    index.update("b", 10.8240, 106.6300);
+    index.update("c", 10.8260, 106.6310);
+
+    assertThat(index.nearestIds(10.8231, 106.6297, 2, 5.0d)).containsExactly("a", "b");
+    assertThat(index.nearestIds(10.8231, 106.6297, 2, 5.0d, "a"::equals)).containsExactly("b", "c");
+  }
+
+  @Test
+  void updateMovesDriverBetweenCellsAndIgnoresStaleWrites() {
+    index.update("d1", 10.8231, 106.6297, 2_000L);
+    assertThat(index.update("d1", 10.9000, 106.9000, 1_000L)).isFalse();
+    assertThat(index.nearestIds(10.8231, 106.6297, 1, 1.0d)).containsExactly("d1");
+
+    index.update("d1", 10.9000, 106.9000, 3_000L);
+    assertThat(index.nearestIds(10.8231, 106.6297, 1, 1.0d)).isEmpty();
+    assertThat(index.nearestIds(10.9000, 106.9000, 1, 1.0d)).containsExactly("d1");
+  }
+
+  @Test
+  void evictOlderThanDropsDriversMissingFromSnapshot() {
+    index.update("kept", 10.8231, 106.6297, 5_000L);
+    index.update("gone", 10.8240, 106.6300, 1_000L);
+
+    assertThat(index.evictOlderThan(5_000L)).isEqualTo(1);
+    assertThat(index.contains("gone")).isFalse();
+    assertThat(index.nearestIds(10.8231, 106.6297, 5, 5.0d)).containsExactly("kept");
+  }
+}
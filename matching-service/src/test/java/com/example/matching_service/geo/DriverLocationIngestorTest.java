@@ -0,0 +1,95 @@
+package com.example.matching_service.geo;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.same;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.example.matching_service.dto.DriverLocationPing;
+import com.example.matching_service.dto.LocationBatchResponse;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class DriverLocationIngestorTest {
+  // Geo set each driver is in on the Redis side, as the script would report it
+  private static final Map<String, Long> PLACEMENT = Map.of("free", 1L, "busy", 2L, "new", 3L, "gone", 0L);
+
+  private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+  private final DriverGeoIndex index = new DriverGeoIndex(0.01);
+  private final List<List<String>> writes = new ArrayList<>();
+  private DriverLocationIngestor ingestor;
+
+  @BeforeEach
+  @SuppressWarnings({ "unchecked", "rawtypes" })
+  void setUp() {
+    RedisTemplate<String, String> redisTemplate = mock(RedisTemplate.class);
+    RedisScript<List> script = mock(RedisScript.class);
+    when(redisTemplate.execute(same(script), anyList(), any(Object[].class))).thenAnswer(invocation -> {
+      Object[] args = (Object[]) invocation.getRawArguments()[2];
+      List<String> written = new ArrayList<>();
+      List<Long> codes = new ArrayList<>();
+      for (int i = 0; i < args.length; i += 4) {
+        written.add(args[i] + "@" + args[i + 2] + "," + args[i + 1] + (args[i + 3].equals("1") ? " inTrip" : ""));
+        codes.add(PLACEMENT.get((String) args[i]));
+      }
+      writes.add(written);
+      return codes;
+    });
+    RegionOwnership ownership = new RegionOwnership(event -> {
+    });
+    ReflectionTestUtils.setField(ownership, "mode", "shared");
+    ingestor = new DriverLocationIngestor(redisTemplate, script, index, ownership,
+        new GeoQueryCache(meterRegistry), meterRegistry);
+    ReflectionTestUtils.setField(ingestor, "flushBatchSize", 2000);
+  }
+
+  @Test
+  void dropsPingsOlderThanWhatIsPendingOrAlreadyFlushed() {
+    assertThat(ingestor.ingest(List.of(ping("free", 10.0, false, 200), ping("free", 10.1, false, 100))))
+        .isEqualTo(new LocationBatchResponse(1, 1));
+
+    ingestor.flush();
+
+    assertThat(ingestor.ingest(List.of(ping("free", 10.2, false, 200))))
+        .isEqualTo(new LocationBatchResponse(0, 1));
+    assertThat(ingestor.ingest(List.of(ping("free", 10.3, false, 300))))
+        .isEqualTo(new LocationBatchResponse(1, 0));
+    assertThat(meterRegistry.counter("matching.location.pings.stale").count()).isEqualTo(2.0);
+  }
+
+  @Test
+  void flushWritesLatestPingPerDriverOnceAndIndexesOnlyFreeDrivers() {
+    ingestor.ingest(List.of(
+        ping("free", 10.0, false, 100),
+        ping("free", 10.5, false, 200),
+        ping("busy", 11.0, true, 100),
+        ping("new", 12.0, false, 100),
+        ping("gone", 13.0, true, 100)));
+    index.update("busy", 11.0, 106.0);
+
+    ingestor.flush();
+    ingestor.flush();
+
+    assertThat(writes).hasSize(1);
+    assertThat(writes.get(0)).containsExactlyInAnyOrder(
+        "free@10.5,106.0", "busy@11.0,106.0 inTrip", "new@12.0,106.0", "gone@13.0,106.0 inTrip");
+    assertThat(index.driverIds()).containsExactlyInAnyOrder("free", "new");
+    assertThat(meterRegistry.counter("matching.location.pings.offline").count()).isEqualTo(1.0);
+  }
+
+  private static DriverLocationPing ping(String driverId, double lat, boolean inTrip, long timestamp) {
+    return new DriverLocationPing(driverId, lat, 106.0, inTrip, timestamp);
+  }
+}
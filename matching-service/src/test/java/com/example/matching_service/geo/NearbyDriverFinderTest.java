@@ -0,0 +1,63 @@
+package com.example.matching_service.geo;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class NearbyDriverFinderTest {
+  private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+  private final DriverGeoIndex index = new DriverGeoIndex(0.01);
+  private final DriverReservationTable reservations = new DriverReservationTable();
+  private final GeoQueryCache cache = new GeoQueryCache(meterRegistry);
+  private NearbyDriverFinder finder;
+
+  @BeforeEach
+  void setUp() {
+    ReflectionTestUtils.setField(cache, "enabled", true);
+    ReflectionTestUtils.setField(cache, "ttlMs", 60_000L);
+    ReflectionTestUtils.setField(cache, "cellSizeDeg", 0.002);
+    ReflectionTestUtils.setField(cache, "candidates", 30);
+    ReflectionTestUtils.setField(cache, "maxEntries", 100);
+    DriverIndexSynchronizer synchronizer = mock(DriverIndexSynchronizer.class);
+    when(synchronizer.isReady()).thenReturn(true);
+    finder = new NearbyDriverFinder(null, null, index, synchronizer, reservations, cache);
+  }
+
+  @Test
+  void burstFromOnePickupSpotIsServedFromTheCacheUntilADriverLeaves() {
+    index.update("d1", 10.8231, 106.6297);
+    index.update("d2", 10.8300, 106.6300);
+
+    assertThat(finder.findNearby(10.8231, 106.6297, 2, 5.0))
+        .extracting(DriverGeoIndex.Neighbor::driverId).containsExactly("d1", "d2");
+
+    // Same cache cell: served without scanning the index, so a driver joining is not seen until expiry
+    index.update("d3", 10.8232, 106.6298);
+    assertThat(finder.findNearby(10.8239, 106.6299, 2, 5.0))
+        .extracting(DriverGeoIndex.Neighbor::driverId).containsExactly("d1", "d2");
+    assertThat(meterRegistry.counter("matching.geo-cache.hits").count()).isEqualTo(1.0);
+
+    index.remove("d1");
+    cache.invalidateDriver("d1");
+    assertThat(finder.findNearby(10.8231, 106.6297, 2, 5.0))
+        .extracting(DriverGeoIndex.Neighbor::driverId).containsExactly("d3", "d2");
+  }
+
+  @Test
+  void leavesReservedDriversOutOfCachedCandidates() {
+    index.update("d1", 10.8231, 106.6297);
+    index.update("d2", 10.8300, 106.6300);
+    finder.findNearby(10.8231, 106.6297, 1, 5.0);
+
+    reservations.reserve("d1", 7L, 60_000);
+
+    assertThat(finder.findNearby(10.8231, 106.6297, 1, 5.0))
+        .extracting(DriverGeoIndex.Neighbor::driverId).containsExactly("d2");
+  }
+}
@@ -0,0 +1,40 @@
+package com.example.matching_service.geo;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+class RegionOwnershipTest {
+  private static final int PARTITIONS = 1000;
+
+  @Test
+  void ownsDriversWithinHaloOfAnOwnedCellIncludingDiagonals() {
+    // Precision 5 cells are ~4.9 km x 4.9 km at the equator
+    double cellLat = 180.0 / (1L << 12);
+    double cellLng = 360.0 / (1L << 13);
+    double south = 10 * cellLat;
+    double west = 20 * cellLng;
+    String cell = GeoHash.encode(south + cellLat / 2, west + cellLng / 2, 5);
+    RegionOwnership ownership = ownershipOf(RegionOwnership.partitionOf(cell, PARTITIONS));
+
+    double kmPerDeg = 111.32;
+    // 3 km north and 3 km east of the north-east corner: 4.2 km from the cell
+    assertThat(ownership.owns(south + cellLat + 3 / kmPerDeg, west + cellLng + 3 / kmPerDeg)).isTrue();
+    assertThat(ownership.owns(south + cellLat / 2, west + cellLng / 2)).isTrue();
+    assertThat(ownership.owns(south + cellLat / 2, west + cellLng + 30 / kmPerDeg)).isFalse();
+  }
+
+  private static RegionOwnership ownershipOf(int partition) {
+    RegionOwnership ownership = new RegionOwnership(event -> {
+    });
+    ReflectionTestUtils.setField(ownership, "mode", "geo-cell");
+    ReflectionTestUtils.setField(ownership, "geoCellPrecision", 5);
+    ReflectionTestUtils.setField(ownership, "haloKm", 5.0);
+    ReflectionTestUtils.setField(ownership, "partitionCount", PARTITIONS);
+    ReflectionTestUtils.setField(ownership, "ownedSnapshot", Set.of(partition));
+    return ownership;
+  }
+}
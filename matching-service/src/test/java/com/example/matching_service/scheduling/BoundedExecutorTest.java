@@ -0,0 +1,75 @@
+package com.example.matching_service.scheduling;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+class BoundedExecutorTest {
+
+  @Test
+  void blocksTheSubmitterOnceMaxConcurrencyTasksAreHandedOff() throws InterruptedException {
+    // The delegate only queues, like a busy pool with an unbounded queue
+    Queue<Runnable> queued = new ConcurrentLinkedQueue<>();
+    BoundedExecutor executor = new BoundedExecutor(queued::add, 2);
+    executor.execute(() -> {
+    });
+    executor.execute(() -> {
+    });
+
+    CountDownLatch submitted = new CountDownLatch(1);
+    Thread submitter = Thread.ofPlatform().start(() -> {
+      executor.execute(() -> {
+      });
+      submitted.countDown();
+    });
+
+    assertThat(submitted.await(200, TimeUnit.MILLISECONDS)).isFalse();
+    assertThat(queued).hasSize(2);
+    assertThat(executor.inFlight()).isEqualTo(3);
+
+    queued.poll().run();
+    assertThat(submitted.await(2, TimeUnit.SECONDS)).isTrue();
+    assertThat(queued).hasSize(2);
+    submitter.join();
+  }
+
+  @Test
+  void reportsSaturationAtHighWatermarkAndDrainAtLowWatermark() {
+    List<Runnable> queued = new ArrayList<>();
+    List<String> events = new ArrayList<>();
+    BoundedExecutor executor = new BoundedExecutor(queued::add, 10, 3, 1,
+        () -> events.add("saturated"), () -> events.add("drained"));
+
+    for (int i = 0; i < 3; i++) {
+      executor.execute(() -> {
+      });
+    }
+    assertThat(events).containsExactly("saturated");
+
+    queued.get(0).run();
+    assertThat(events).containsExactly("saturated");
+    queued.get(1).run();
+    assertThat(events).containsExactly("saturated", "drained");
+  }
+
+  @Test
+  void givesThePermitBackWhenTheDelegateRejects() {
+    BoundedExecutor executor = new BoundedExecutor(task -> {
+      throw new RejectedExecutionException("full");
+    }, 1);
+
+    assertThatThrownBy(() -> executor.execute(() -> {
+    })).isInstanceOf(RejectedExecutionException.class);
+    assertThat(executor.inFlight()).isZero();
+    assertThat(executor.running()).isZero();
+  }
+}
@@ -0,0 +1,43 @@
+package com.example.matching_service.scheduling;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+class HashedTimingWheelTest {
+  private final HashedTimingWheel wheel = new HashedTimingWheel(10, 8, Runnable::run, "test-timer");
+
+  @AfterEach
+  void tearDown() {
+    wheel.stop();
+  }
+
+  @Test
+  void firesAfterDelayIncludingMultipleRotations() throws InterruptedException {
+    CountDownLatch latch = new CountDownLatch(2);
+    long start = System.nanoTime();
+    wheel.schedule(latch::countDown, 30, TimeUnit.MILLISECONDS);
+    wheel.schedule(latch::countDown, 200, TimeUnit.MILLISECONDS);
+
+    assertThat(latch.await(2, TimeUnit.SECONDS)).isTrue();
+    assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)).isGreaterThanOrEqualTo(190);
+    assertThat(wheel.pendingTimeouts()).isZero();
+  }
+
+  @Test
+  void cancelledTimeoutNeverFires() throws InterruptedException {
+    AtomicInteger fired = new AtomicInteger();
+    HashedTimingWheel.Timeout timeout = wheel.schedule(fired::incrementAndGet, 50, TimeUnit.MILLISECONDS);
+    assertThat(timeout.cancel()).isTrue();
+
+    Thread.sleep(150);
+    assertThat(fired.get()).isZero();
+    assertThat(timeout.isCancelled()).isTrue();
+    assertThat(wheel.pendingTimeouts()).isZero();
+  }
+}
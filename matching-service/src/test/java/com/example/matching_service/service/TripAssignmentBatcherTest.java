@@ -0,0 +1,95 @@
+package com.example.matching_service.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+import java.util.Set;
+
+import org.assertj.core.groups.Tuple;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.example.matching_service.dto.TripLocationData;
+import com.example.matching_service.geo.DriverGeoIndex.Neighbor;
+import com.example.matching_service.geo.DriverReservationTable;
+import com.example.matching_service.geo.NearbyDriverFinder;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class TripAssignmentBatcherTest {
+  private static final TripLocationData PICKUP_A = new TripLocationData(10.0, 106.0, 10.1, 106.1);
+  private static final TripLocationData PICKUP_B = new TripLocationData(10.5, 106.5, 10.6, 106.6);
+
+  @Test
+  void givesEachDriverAtMostOneTripPreferringShorterPickups() {
+    NearbyDriverFinder finder = mock(NearbyDriverFinder.class);
+    // d1 is closest to both pickups; B has nobody else nearby, A also has d2
+    when(finder.findNearby(eq(10.0), eq(106.0), anyInt(), anyDouble(), any())).thenReturn(List.of(
+        new Neighbor("d1", 10.0, 106.0, 0.5),
+        new Neighbor("d2", 10.0, 106.0, 1.5)));
+    when(finder.findNearby(eq(10.5), eq(106.5), anyInt(), anyDouble(), any())).thenReturn(List.of(
+        new Neighbor("d1", 10.5, 106.5, 0.2)));
+    TripAssignmentBatcher batcher = new TripAssignmentBatcher(finder, null, null, new DriverReservationTable(),
+        new SimpleMeterRegistry());
+
+    List<TripAssignmentBatcher.Assignment> assignments = batcher.assign(List.of(
+        new TripAssignmentBatcher.PendingTrip(1L, PICKUP_A, 0, Set.of()),
+        new TripAssignmentBatcher.PendingTrip(2L, PICKUP_B, 0, Set.of())));
+
+    assertThat(assignments).extracting(TripAssignmentBatcher.Assignment::tripId,
+        TripAssignmentBatcher.Assignment::driverId)
+        .containsExactlyInAnyOrder(
+            Tuple.tuple(2L, "d1"),
+            Tuple.tuple(1L, "d2"));
+  }
+
+  @Test
+  void leavesTripUnassignedWhenItsOnlyCandidateIsTaken() {
+    NearbyDriverFinder finder = mock(NearbyDriverFinder.class);
+    when(finder.findNearby(anyDouble(), anyDouble(), anyInt(), anyDouble(), any())).thenReturn(List.of(
+        new Neighbor("d1", 10.0, 106.0, 0.5)));
+    TripAssignmentBatcher batcher = new TripAssignmentBatcher(finder, null, null, new DriverReservationTable(),
+        new SimpleMeterRegistry());
+
+    List<TripAssignmentBatcher.Assignment> assignments = batcher.assign(List.of(
+        new TripAssignmentBatcher.PendingTrip(1L, PICKUP_A, 0, Set.of()),
+        new TripAssignmentBatcher.PendingTrip(2L, PICKUP_B, 0, Set.of())));
+
+    assertThat(assignments).hasSize(1);
+    assertThat(assignments.get(0).driverId()).isEqualTo("d1");
+  }
+
+  @Test
+  void keepsRetryingTripWithoutCandidatesUntilMaxWaitThenCountsItUnmatched() {
+    NearbyDriverFinder finder = mock(NearbyDriverFinder.class);
+    when(finder.findNearby(anyDouble(), anyDouble(), anyInt(), anyDouble(), any())).thenReturn(List.of());
+    TripOfferSender offerSender = mock(TripOfferSender.class);
+    when(offerSender.sendOffers(any())).thenReturn(List.of());
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    TripAssignmentBatcher batcher = new TripAssignmentBatcher(finder, offerSender, new StoppedTrips(),
+        new DriverReservationTable(), meterRegistry);
+    ReflectionTestUtils.setField(batcher, "maxWaitMs", 60_000L);
+    batcher.submit(1L, PICKUP_A);
+
+    // Far more windows than the old attempt limit, all within the budget
+    for (int i = 0; i < 10; i++) {
+      batcher.flush();
+    }
+    assertThat(meterRegistry.counter("matching.assignment.unmatched").count()).isZero();
+
+    ReflectionTestUtils.setField(batcher, "maxWaitMs", 0L);
+    batcher.flush();
+    batcher.flush();
+
+    verify(finder, times(11)).findNearby(anyDouble(), anyDouble(), anyInt(), anyDouble(), any());
+    assertThat(meterRegistry.counter("matching.assignment.unmatched").count()).isEqualTo(1.0);
+  }
+}
@@ -3,18 +3,20 @@ package com.example.notification_service.config;
 import java.io.IOException;
 import java.io.InputStream;
 
-import javax.annotation.PostConstruct;
-
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Configuration;
 
 import com.google.auth.oauth2.GoogleCredentials;
 import com.google.firebase.FirebaseApp;
 import com.google.firebase.FirebaseOptions;
 
+import jakarta.annotation.PostConstruct;
+
 /**
  * FirebaseConfig
  */
 @Configuration
+@ConditionalOnProperty(name = "notification.push.transport", havingValue = "fcm", matchIfMissing = true)
 public class FirebaseConfig {
   @PostConstruct
   public void initialize() throws IOException {
@@ -0,0 +1,36 @@
+package com.example.notification_service.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.listener.DefaultErrorHandler;
+import org.springframework.util.backoff.FixedBackOff;
+
+/**
+ * Error handling for the notification command listeners. Records that fail to
+ * deserialize never reach it: the ErrorHandlingDeserializer turns them into
+ * null values that the listener skips. A batch whose listener throws is
+ * retried {@code retry-attempts} times, {@code retry-backoff-ms} apart, and
+ * then logged and skipped so one bad batch cannot stall the partition.
+ */
+@Configuration
+public class KafkaConfig {
+  private static final Logger logger = LoggerFactory.getLogger(KafkaConfig.class);
+
+  @Value("${notification.kafka.retry-attempts:2}")
+  private long retryAttempts;
+
+  @Value("${notification.kafka.retry-backoff-ms:1000}")
+  private long retryBackoffMs;
+
+  // Picked up by Boot's auto-configured listener container factory
+  @Bean
+  DefaultErrorHandler kafkaErrorHandler() {
+    return new DefaultErrorHandler(
+        (record, e) -> logger.error("Skipping notification command at {}-{}@{}: {}",
+            record.topic(), record.partition(), record.offset(), e.getMessage()),
+        new FixedBackOff(retryBackoffMs, retryAttempts));
+  }
+}
@@ -24,6 +24,6 @@ public class NotificationController {
   @PostMapping("/register-instance")
   @ResponseStatus(code = HttpStatus.OK)
   public void registerInstance(@RequestBody DeviceRegistrationRequest request) {
-    notificationService.saveToken(request.userId(), request.fcmToken());
+    notificationService.saveToken(request.userId(), request.deviceId(), request.fcmToken());
   }
 }
@@ -2,9 +2,12 @@ package com.example.notification_service.dto;
 
 /**
  * DeviceRegistrationRequest
+ *
+ * deviceId is optional; clients that do not send it keep one token per user.
  */
 public record DeviceRegistrationRequest(
   String userId,
+  String deviceId,
   String fcmToken
 ) {
 }
@@ -9,23 +9,31 @@ import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.Table;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+// One row per (user, device); registering again from the same device replaces its token
 @Entity
-@Table(name = "device_tokens")
+@Table(name = "device_tokens", indexes = {
+    @Index(name = "ux_device_tokens_user_device", columnList = "user_id, device_id", unique = true),
+    @Index(name = "ix_device_tokens_fcm_token", columnList = "fcm_token")
+})
 @Data
 public class DeviceToken {
   @Id
   @GeneratedValue(strategy = GenerationType.IDENTITY)
   private Long id;
 
-  @Column(name = "user_id")
+  @Column(name = "user_id", nullable = false, length = 64)
   private String userId;
 
-  @Column(name = "fcm_token")
+  @Column(name = "device_id", nullable = false, length = 128)
+  private String deviceId;
+
+  @Column(name = "fcm_token", nullable = false, length = 512)
   private String fcmToken;
 
   @UpdateTimestamp
@@ -0,0 +1,66 @@
+package com.example.notification_service.push;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import com.google.firebase.messaging.BatchResponse;
+import com.google.firebase.messaging.FirebaseMessaging;
+import com.google.firebase.messaging.FirebaseMessagingException;
+import com.google.firebase.messaging.Message;
+import com.google.firebase.messaging.MessagingErrorCode;
+import com.google.firebase.messaging.Notification;
+import com.google.firebase.messaging.SendResponse;
+
+/**
+ * FCM transport: one {@code sendEach} call carries up to 500 messages.
+ */
+@Component
+@ConditionalOnProperty(name = "notification.push.transport", havingValue = "fcm", matchIfMissing = true)
+public class FcmPushTransport implements PushTransport {
+
+  @Override
+  public List<PushResult> sendBatch(List<PushMessage> messages) {
+    List<Message> fcmMessages = new ArrayList<>(messages.size());
+    for (PushMessage message : messages) {
+      Message.Builder builder = Message.builder()
+          .setToken(message.token())
+          .setNotification(Notification.builder()
+              .setTitle(message.title())
+              .setBody(message.body())
+              .build());
+      if (message.data() != null) {
+        builder.putAllData(message.data());
+      }
+      fcmMessages.add(builder.build());
+    }
+
+    List<PushResult> results = new ArrayList<>(messages.size());
+    try {
+      BatchResponse batch = FirebaseMessaging.getInstance().sendEach(fcmMessages);
+      for (SendResponse response : batch.getResponses()) {
+        results.add(toResult(response));
+      }
+    } catch (FirebaseMessagingException e) {
+      for (int i = 0; i < messages.size(); i++) {
+        results.add(PushResult.failed(e.getMessage()));
+      }
+    }
+    return results;
+  }
+
+  private PushResult toResult(SendResponse response) {
+    if (response.isSuccessful()) {
+      return PushResult.sent(response.getMessageId());
+    }
+    FirebaseMessagingException e = response.getException();
+    MessagingErrorCode code = e.getMessagingErrorCode();
+    // Only UNREGISTERED says the token is dead; INVALID_ARGUMENT can just as well be a bad payload
+    if (code == MessagingErrorCode.UNREGISTERED) {
+      return PushResult.rejected(e.getMessage());
+    }
+    return PushResult.failed(e.getMessage());
+  }
+}
@@ -0,0 +1,37 @@
+package com.example.notification_service.push;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Offline stub for benchmarking the dispatch path: every batch takes
+ * {@code batch-latency-ms} and every message succeeds.
+ */
+@Component
+@ConditionalOnProperty(name = "notification.push.transport", havingValue = "local")
+public class LocalPushTransport implements PushTransport {
+  private final AtomicLong sequence = new AtomicLong();
+
+  @Value("${notification.push.local.batch-latency-ms:50}")
+  private long batchLatencyMs;
+
+  @Override
+  public List<PushResult> sendBatch(List<PushMessage> messages) {
+    try {
+      TimeUnit.MILLISECONDS.sleep(batchLatencyMs);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    List<PushResult> results = new ArrayList<>(messages.size());
+    for (int i = 0; i < messages.size(); i++) {
+      results.add(PushResult.sent("local-" + sequence.incrementAndGet()));
+    }
+    return results;
+  }
+}
@@ -0,0 +1,201 @@
+package com.example.notification_service.push;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Micro-batching stage in front of a {@link PushTransport}. Callers get a
+ * future right away; one collector thread groups queued messages into batches
+ * that are flushed when {@code max-batch-size} is reached or
+ * {@code linger-ms} after the first message, whichever comes first. At most
+ * {@code max-in-flight} batches are being sent at once. The queue is ordered
+ * by {@link PushLane} and then by arrival, and messages whose deadline passed
+ * while queued are dropped right before the transport call.
+ */
+@Component
+public class PushDispatcher {
+  private static final Logger logger = LoggerFactory.getLogger(PushDispatcher.class);
+
+  private final PushTransport transport;
+  private static final Comparator<Pending> DISPATCH_ORDER = Comparator
+      .comparing(Pending::lane)
+      .thenComparingLong(Pending::sequence);
+
+  private final BlockingQueue<Pending> queue;
+  private final int queueCapacity;
+  private final AtomicLong sequence = new AtomicLong();
+  private final int maxBatchSize;
+  private final long lingerNanos;
+  private final Semaphore inFlight;
+  private final ExecutorService senders;
+  private final Thread collector;
+  private final Counter rejected;
+  private final Counter failures;
+  private final Counter expired;
+  private final DistributionSummary batchSizes;
+  private volatile boolean running = true;
+
+  // expiresAt is epoch millis, 0 when the message never expires
+  private record Pending(PushMessage message, PushLane lane, long expiresAt, long sequence,
+      CompletableFuture<PushResult> result) {
+  }
+
+  public PushDispatcher(PushTransport transport, MeterRegistry meterRegistry,
+      @Value("${notification.push.queue-capacity:20000}") int queueCapacity,
+      @Value("${notification.push.max-batch-size:500}") int maxBatchSize,
+      @Value("${notification.push.linger-ms:20}") long lingerMs,
+      @Value("${notification.push.max-in-flight:4}") int maxInFlight) {
+    this.transport = transport;
+    this.queue = new PriorityBlockingQueue<>(Math.min(queueCapacity, 1024), DISPATCH_ORDER);
+    this.queueCapacity = queueCapacity;
+    this.maxBatchSize = Math.min(Math.max(maxBatchSize, 1), PushTransport.MAX_BATCH_SIZE);
+    this.lingerNanos = TimeUnit.MILLISECONDS.toNanos(lingerMs);
+    this.inFlight = new Semaphore(maxInFlight);
+    this.senders = Executors.newFixedThreadPool(maxInFlight,
+        Thread.ofPlatform().name("push-sender-", 0).daemon().factory());
+    this.collector = Thread.ofPlatform().name("push-collector").daemon().unstarted(this::collect);
+    this.rejected = meterRegistry.counter("notification.push.rejected");
+    this.failures = meterRegistry.counter("notification.push.failures");
+    this.expired = meterRegistry.counter("notification.push.expired");
+    this.batchSizes = DistributionSummary.builder("notification.push.batch.size")
+        .description("Messages per transport call")
+        .register(meterRegistry);
+    meterRegistry.gauge("notification.push.queue.size", queue, BlockingQueue::size);
+  }
+
+  @PostConstruct
+  void start() {
+    collector.start();
+  }
+
+  @PreDestroy
+  void stop() throws InterruptedException {
+    running = false;
+    collector.interrupt();
+    collector.join(TimeUnit.SECONDS.toMillis(5));
+    senders.shutdown();
+    senders.awaitTermination(5, TimeUnit.SECONDS);
+  }
+
+  public CompletableFuture<PushResult> submit(PushMessage message) {
+    return submit(message, PushLane.URGENT, 0);
+  }
+
+  /**
+   * Queues a message on the given lane. A message still queued at
+   * {@code expiresAt} (epoch millis, 0 for never) completes as failed without
+   * being sent.
+   */
+  public CompletableFuture<PushResult> submit(PushMessage message, PushLane lane, long expiresAt) {
+    CompletableFuture<PushResult> result = new CompletableFuture<>();
+    // The priority queue is unbounded, so capacity is checked here (may overshoot by a few under contention)
+    if (queue.size() >= queueCapacity) {
+      rejected.increment();
+      result.complete(PushResult.failed("Push queue is full"));
+      return result;
+    }
+    queue.add(new Pending(message, lane, expiresAt, sequence.getAndIncrement(), result));
+    return result;
+  }
+
+  private void collect() {
+    while (running || !queue.isEmpty()) {
+      List<Pending> batch = new ArrayList<>(maxBatchSize);
+      try {
+        Pending first = queue.poll(100, TimeUnit.MILLISECONDS);
+        if (first == null) {
+          continue;
+        }
+        batch.add(first);
+        long deadline = System.nanoTime() + lingerNanos;
+        while (batch.size() < maxBatchSize) {
+          queue.drainTo(batch, maxBatchSize - batch.size());
+          long left = deadline - System.nanoTime();
+          if (batch.size() >= maxBatchSize || left <= 0) {
+            break;
+          }
+          Pending next = queue.poll(left, TimeUnit.NANOSECONDS);
+          if (next == null) {
+            break;
+          }
+          batch.add(next);
+        }
+        inFlight.acquire();
+        senders.execute(() -> send(batch));
+      } catch (InterruptedException e) {
+        queue.drainTo(batch);
+        for (Pending pending : batch) {
+          pending.result().complete(PushResult.failed("Dispatcher stopped"));
+        }
+        if (!running) {
+          return;
+        }
+      }
+    }
+  }
+
+  private void send(List<Pending> queued) {
+    List<Pending> batch = dropExpired(queued);
+    if (batch.isEmpty()) {
+      inFlight.release();
+      return;
+    }
+    try {
+      List<PushMessage> messages = new ArrayList<>(batch.size());
+      for (Pending pending : batch) {
+        messages.add(pending.message());
+      }
+      batchSizes.record(batch.size());
+      List<PushResult> results = transport.sendBatch(messages);
+      for (int i = 0; i < batch.size(); i++) {
+        PushResult result = i < results.size() ? results.get(i) : PushResult.failed("No result from transport");
+        if (!result.success()) {
+          failures.increment();
+        }
+        batch.get(i).result().complete(result);
+      }
+    } catch (RuntimeException e) {
+      logger.error("Push batch of {} failed: {}", batch.size(), e.getMessage());
+      failures.increment(batch.size());
+      for (Pending pending : batch) {
+        pending.result().complete(PushResult.failed(e.getMessage()));
+      }
+    } finally {
+      inFlight.release();
+    }
+  }
+
+  private List<Pending> dropExpired(List<Pending> batch) {
+    long now = System.currentTimeMillis();
+    List<Pending> live = new ArrayList<>(batch.size());
+    for (Pending pending : batch) {
+      if (pending.expiresAt() > 0 && pending.expiresAt() <= now) {
+        expired.increment();
+        pending.result().complete(PushResult.failed("Expired before dispatch"));
+      } else {
+        live.add(pending);
+      }
+    }
+    return live;
+  }
+}
@@ -0,0 +1,11 @@
+package com.example.notification_service.push;
+
+/**
+ * Dispatch priority. Queued {@link #URGENT} messages always go out before any
+ * {@link #INFO} message, so a backlog of informational pushes never delays a
+ * trip offer.
+ */
+public enum PushLane {
+  URGENT,
+  INFO
+}
@@ -0,0 +1,10 @@
+package com.example.notification_service.push;
+
+import java.util.Map;
+
+public record PushMessage(
+    String token,
+    String title,
+    String body,
+    Map<String, String> data) {
+}
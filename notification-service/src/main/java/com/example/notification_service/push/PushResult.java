@@ -0,0 +1,27 @@
+package com.example.notification_service.push;
+
+// invalidToken marks tokens the provider rejected for good (unregistered);
+// permanent marks failures a retry cannot fix (rejected token, no device at all)
+public record PushResult(
+    boolean success,
+    String messageId,
+    String error,
+    boolean invalidToken,
+    boolean permanent) {
+
+  public static PushResult sent(String messageId) {
+    return new PushResult(true, messageId, null, false, false);
+  }
+
+  public static PushResult failed(String error) {
+    return new PushResult(false, null, error, false, false);
+  }
+
+  public static PushResult rejected(String error) {
+    return new PushResult(false, null, error, true, true);
+  }
+
+  public static PushResult undeliverable(String error) {
+    return new PushResult(false, null, error, false, true);
+  }
+}
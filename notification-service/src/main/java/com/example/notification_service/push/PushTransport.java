@@ -0,0 +1,13 @@
+package com.example.notification_service.push;
+
+import java.util.List;
+
+/**
+ * Sends one batch of push messages. Implementations return exactly one
+ * result per message, in the same order.
+ */
+public interface PushTransport {
+  int MAX_BATCH_SIZE = 500;
+
+  List<PushResult> sendBatch(List<PushMessage> messages);
+}
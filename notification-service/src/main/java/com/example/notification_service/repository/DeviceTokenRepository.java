@@ -1,10 +1,41 @@
 package com.example.notification_service.repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
 import com.example.notification_service.entity.DeviceToken;
-import com.google.common.base.Optional;
 
 public interface DeviceTokenRepository extends JpaRepository<DeviceToken, Long> {
-    Optional<DeviceToken> findByUserId(String userId);
+    List<DeviceToken> findByUserId(String userId);
+
+    List<DeviceToken> findByUserIdIn(Collection<String> userIds);
+
+    List<DeviceToken> findByFcmToken(String fcmToken);
+
+    // HOLDLOCK makes the MERGE race-free when the same device registers twice at once
+    @Modifying
+    @Transactional
+    @Query(value = """
+            MERGE device_tokens WITH (HOLDLOCK) AS t
+            USING (SELECT :userId AS user_id, :deviceId AS device_id) AS s
+            ON t.user_id = s.user_id AND t.device_id = s.device_id
+            WHEN MATCHED THEN
+                UPDATE SET fcm_token = :fcmToken, updated_at = :at
+            WHEN NOT MATCHED THEN
+                INSERT (user_id, device_id, fcm_token, updated_at) VALUES (:userId, :deviceId, :fcmToken, :at);
+            """, nativeQuery = true)
+    int upsert(@Param("userId") String userId, @Param("deviceId") String deviceId,
+            @Param("fcmToken") String fcmToken, @Param("at") LocalDateTime at);
+
+    @Modifying
+    @Transactional
+    @Query("delete from DeviceToken d where d.fcmToken = :fcmToken")
+    int deleteByFcmToken(@Param("fcmToken") String fcmToken);
 }
@@ -0,0 +1,76 @@
+package com.example.notification_service.service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.example.notification_service.entity.DeviceToken;
+import com.example.notification_service.repository.DeviceTokenRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+/**
+ * FCM tokens per user, read through to device_tokens. Users without a device
+ * are cached as an empty list too, so repeated sends to them skip the
+ * database. Entries are dropped on registration and invalid-token reports;
+ * the TTL bounds staleness for registrations handled by another instance.
+ */
+@Component
+public class DeviceTokenCache {
+  private final DeviceTokenRepository deviceTokenRepository;
+  private final Cache<String, List<String>> tokens;
+
+  public DeviceTokenCache(DeviceTokenRepository deviceTokenRepository, MeterRegistry meterRegistry,
+      @Value("${notification.tokens.cache.max-size:100000}") long maxSize,
+      @Value("${notification.tokens.cache.ttl-ms:600000}") long ttlMs) {
+    this.deviceTokenRepository = deviceTokenRepository;
+    this.tokens = Caffeine.newBuilder()
+        .maximumSize(maxSize)
+        .expireAfterWrite(Duration.ofMillis(ttlMs))
+        .recordStats()
+        .build();
+    CaffeineCacheMetrics.monitor(meterRegistry, tokens, "device_tokens");
+  }
+
+  public List<String> get(String userId) {
+    return tokens.get(userId, id -> deviceTokenRepository.findByUserId(id).stream()
+        .map(DeviceToken::getFcmToken)
+        .toList());
+  }
+
+  // Misses are loaded with one query for the whole batch
+  public Map<String, List<String>> getAll(Collection<String> userIds) {
+    return tokens.getAll(userIds, missing -> {
+      Map<String, List<String>> loaded = new HashMap<>();
+      for (String userId : missing) {
+        loaded.put(userId, List.of());
+      }
+      for (DeviceToken deviceToken : deviceTokenRepository.findByUserIdIn(new ArrayList<>(missing))) {
+        loaded.merge(deviceToken.getUserId(), List.of(deviceToken.getFcmToken()), DeviceTokenCache::concat);
+      }
+      return loaded;
+    });
+  }
+
+  public void invalidate(String userId) {
+    tokens.invalidate(userId);
+  }
+
+  private static List<String> concat(List<String> a, List<String> b) {
+    if (a.isEmpty()) {
+      return b;
+    }
+    List<String> merged = new ArrayList<>(a);
+    merged.addAll(b);
+    return List.copyOf(merged);
+  }
+}
@@ -0,0 +1,138 @@
+package com.example.notification_service.service;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.stereotype.Component;
+
+import com.example.notification_service.dto.NotificationCommand;
+import com.example.notification_service.push.PushLane;
+import com.example.notification_service.push.PushResult;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Asynchronous path for notification commands. Trip offers and informational
+ * messages (accepted, cancelled, ...) arrive on separate topics with their own
+ * listener containers, so a backlog of one never holds back polling of the
+ * other, and offers go on the {@link PushLane#URGENT} dispatch lane. Offers
+ * past their deadline are dropped before they are queued. Records that could
+ * not be deserialized arrive as null and are skipped.
+ * <p>
+ * Delivery is at-most-once: each poll is acked once its pushes have been sent
+ * or dropped, or after {@code dispatch-timeout-ms} at the latest. Pushes still
+ * queued at that point go out on their own, but failed or late ones are not
+ * redelivered from Kafka; redelivering would re-push every command of the
+ * batch that did get through.
+ */
+@Component
+public class NotificationCommandListener {
+  private static final Logger logger = LoggerFactory.getLogger(NotificationCommandListener.class);
+  private final DeviceTokenCache deviceTokenCache;
+  private final UserPushSender userPushSender;
+  private final Counter staleOffers;
+
+  @Value("${notification.kafka.dispatch-timeout-ms:30000}")
+  private long dispatchTimeoutMs;
+
+  public NotificationCommandListener(DeviceTokenCache deviceTokenCache, UserPushSender userPushSender,
+      MeterRegistry meterRegistry) {
+    this.deviceTokenCache = deviceTokenCache;
+    this.userPushSender = userPushSender;
+    this.staleOffers = meterRegistry.counter("notification.kafka.stale");
+  }
+
+  @KafkaListener(
+      id = "notification-offers-listener",
+      groupId = "${spring.kafka.consumer.group-id}-offers",
+      topics = "${notification.kafka.offers-topic:notification-offers}",
+      concurrency = "${notification.kafka.offers-concurrency:3}",
+      batch = "true")
+  public void onOffers(List<NotificationCommand> commands) {
+    dispatch(commands, PushLane.URGENT);
+  }
+
+  @KafkaListener(
+      id = "notification-info-listener",
+      groupId = "${spring.kafka.consumer.group-id}-info",
+      topics = "${notification.kafka.info-topic:notification-info}",
+      concurrency = "${notification.kafka.info-concurrency:1}",
+      batch = "true")
+  public void onInfo(List<NotificationCommand> commands) {
+    dispatch(commands, PushLane.INFO);
+  }
+
+  private void dispatch(List<NotificationCommand> commands, PushLane lane) {
+    long now = System.currentTimeMillis();
+    List<NotificationCommand> live = new ArrayList<>(commands.size());
+    int undecodable = 0;
+    for (NotificationCommand command : commands) {
+      if (command == null) {
+        undecodable++;
+      } else if (isExpired(command, now)) {
+        staleOffers.increment();
+      } else {
+        live.add(command);
+      }
+    }
+    if (undecodable > 0) {
+      logger.warn("Skipped {} undecodable {} notification commands", undecodable, lane);
+    }
+    if (live.size() + undecodable < commands.size()) {
+      logger.info("Dropped {} expired {} notifications", commands.size() - live.size() - undecodable, lane);
+    }
+    if (live.isEmpty()) {
+      return;
+    }
+
+    LinkedHashSet<String> userIds = new LinkedHashSet<>();
+    for (NotificationCommand command : live) {
+      userIds.add(command.getUserId());
+    }
+    Map<String, List<String>> tokens = deviceTokenCache.getAll(userIds);
+    List<CompletableFuture<PushResult>> results = new ArrayList<>(live.size());
+    for (NotificationCommand command : live) {
+      results.add(userPushSender.push(command.getUserId(), tokens.getOrDefault(command.getUserId(), List.of()),
+          command.getTitle(), command.getBody(), lane, expiresAt(command)));
+    }
+    await(results, lane);
+  }
+
+  // Blocking here keeps the container from polling faster than pushes drain
+  private void await(List<CompletableFuture<PushResult>> results, PushLane lane) {
+    try {
+      CompletableFuture.allOf(results.toArray(new CompletableFuture[0])).get(dispatchTimeoutMs, TimeUnit.MILLISECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return;
+    } catch (TimeoutException | ExecutionException e) {
+      // At-most-once: the poll is acked anyway and the stragglers are not redelivered
+      logger.warn("{} notifications not dispatched within {} ms, acking without redelivery", lane,
+          dispatchTimeoutMs);
+      return;
+    }
+    long failed = results.stream().filter(result -> !result.join().success()).count();
+    if (failed > 0) {
+      logger.warn("{} of {} {} notifications were not delivered", failed, results.size(), lane);
+    }
+  }
+
+  private static boolean isExpired(NotificationCommand command, long now) {
+    return command.getExpiresAt() != null && command.getExpiresAt() <= now;
+  }
+
+  private static long expiresAt(NotificationCommand command) {
+    return command.getExpiresAt() == null ? 0 : command.getExpiresAt();
+  }
+}
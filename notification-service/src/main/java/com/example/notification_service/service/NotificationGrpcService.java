@@ -1,61 +1,135 @@
 package com.example.notification_service.service;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+
 import com.example.notification_service.proto.*;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.grpc.server.service.GrpcService;
-import com.example.notification_service.entity.DeviceToken;
-import com.example.notification_service.repository.DeviceTokenRepository;
-import com.google.firebase.messaging.FirebaseMessaging;
-import com.google.firebase.messaging.Message;
-import com.google.firebase.messaging.Notification;
+import com.example.notification_service.push.PushResult;
 
+import io.grpc.Status;
 import io.grpc.stub.StreamObserver;
 import lombok.RequiredArgsConstructor;
 
 @GrpcService
 @RequiredArgsConstructor
 public class NotificationGrpcService extends NotificationServiceGrpc.NotificationServiceImplBase {
-  private final DeviceTokenRepository deviceTokenRepository;
+  private static final Logger logger = LoggerFactory.getLogger(NotificationGrpcService.class);
+  private final DeviceTokenCache deviceTokenCache;
+  private final UserPushSender userPushSender;
+
+  // Caps the pushes and per-message state one client stream can pile up
+  @Value("${notification.grpc.max-stream-messages:10000}")
+  private int maxStreamMessages;
 
   @Override
   public void sendNotification(SendNotificationRequest request,
       StreamObserver<SendNotificationResponse> responseObserver) {
     String driverId = request.getDriverId();
-    String fcmToken = deviceTokenRepository.findByUserId(driverId)
-        .get()
-        .getFcmToken();
-    if (fcmToken == null) {
-      responseObserver.onNext(SendNotificationResponse.newBuilder()
-          .setSuccess(false)
-          .setMessage("No FCM token for driver: " + driverId)
-          .build());
+    // The gRPC thread returns right away; the response is sent once the batch holding this message is flushed
+    CompletableFuture<PushResult> pushed = userPushSender.push(driverId, deviceTokenCache.get(driverId), request.getTitle(),
+        request.getBody());
+    pushed.whenComplete((result, error) -> {
+      if (error != null) {
+        responseObserver.onNext(SendNotificationResponse.newBuilder()
+            .setSuccess(false)
+            .setMessage("Failed to send notification: " + error.getMessage())
+            .build());
+      } else if (result.success()) {
+        responseObserver.onNext(SendNotificationResponse.newBuilder()
+            .setSuccess(true)
+            .setMessage("Successfully sent notification: " + result.messageId())
+            .build());
+      } else {
+        responseObserver.onNext(SendNotificationResponse.newBuilder()
+            .setSuccess(false)
+            .setMessage("Failed to send notification: " + result.error())
+            .setPermanent(result.permanent())
+            .build());
+      }
       responseObserver.onCompleted();
-      return;
-    }
-    Notification notification = Notification.builder()
-        .setTitle(request.getTitle())
-        .setBody(request.getBody())
-        .build();
-    Message message = Message.builder()
-        .setToken(fcmToken)
-        .setNotification(notification)
-        .putData("driverId", driverId.toString())
-        .build();
-    try {
-      String response = FirebaseMessaging.getInstance().send(message);
-      responseObserver.onNext(SendNotificationResponse.newBuilder()
-          .setSuccess(true)
-          .setMessage("Successfully sent notification: " + response)
-          .build());
-    } catch (Exception e) {
-      e.printStackTrace();
-      responseObserver.onNext(SendNotificationResponse.newBuilder()
-          .setSuccess(false)
-          .setMessage("Failed to send notification: " + e.getMessage())
-          .build());
-      // if (e.getMessage().contains("NotRegistered")) {
-      //   deviceTokenRepository.deleteById(driverId);
-      // }
+    });
+  }
+
+  @Override
+  public void sendBatchNotification(BatchNotificationRequest request,
+      StreamObserver<BatchNotificationResponse> responseObserver) {
+    // Cache misses for the whole batch are loaded with one token query
+    List<String> driverIds = request.getDriverIdsList();
+    Map<String, List<String>> tokens = deviceTokenCache.getAll(driverIds);
+    List<CompletableFuture<PushResult>> results = new ArrayList<>(driverIds.size());
+    for (String driverId : driverIds) {
+      results.add(userPushSender.push(driverId, tokens.getOrDefault(driverId, List.of()), request.getTitle(),
+          request.getBody()));
     }
-    responseObserver.onCompleted();
+    respondWhenDone(driverIds, results, responseObserver);
+  }
+
+  @Override
+  public StreamObserver<SendNotificationRequest> streamNotifications(
+      StreamObserver<BatchNotificationResponse> responseObserver) {
+    List<String> driverIds = new ArrayList<>();
+    List<CompletableFuture<PushResult>> results = new ArrayList<>();
+    return new StreamObserver<>() {
+      private boolean rejected;
+
+      @Override
+      public void onNext(SendNotificationRequest request) {
+        if (rejected) {
+          return;
+        }
+        if (driverIds.size() >= maxStreamMessages) {
+          rejected = true;
+          logger.warn("Notification stream exceeded {} messages, rejecting the rest", maxStreamMessages);
+          responseObserver.onError(Status.RESOURCE_EXHAUSTED
+              .withDescription("More than " + maxStreamMessages + " notifications in one stream")
+              .asRuntimeException());
+          return;
+        }
+        String driverId = request.getDriverId();
+        driverIds.add(driverId);
+        results.add(userPushSender.push(driverId, deviceTokenCache.get(driverId), request.getTitle(), request.getBody()));
+      }
+
+      @Override
+      public void onError(Throwable t) {
+        logger.warn("Notification stream aborted after {} messages: {}", driverIds.size(), t.getMessage());
+      }
+
+      @Override
+      public void onCompleted() {
+        if (!rejected) {
+          respondWhenDone(driverIds, results, responseObserver);
+        }
+      }
+    };
+  }
+
+  private void respondWhenDone(List<String> driverIds, List<CompletableFuture<PushResult>> results,
+      StreamObserver<BatchNotificationResponse> responseObserver) {
+    CompletableFuture.allOf(results.toArray(new CompletableFuture[0])).whenComplete((ignored, error) -> {
+      BatchNotificationResponse.Builder response = BatchNotificationResponse.newBuilder();
+      int sent = 0;
+      for (int i = 0; i < results.size(); i++) {
+        PushResult result = results.get(i).getNow(PushResult.failed("Not completed"));
+        if (result.success()) {
+          sent++;
+        }
+        response.addResults(RecipientResult.newBuilder()
+            .setDriverId(driverIds.get(i))
+            .setSuccess(result.success())
+            .setMessage(Objects.requireNonNullElse(result.success() ? result.messageId() : result.error(), ""))
+            .setPermanent(result.permanent())
+            .build());
+      }
+      responseObserver.onNext(response.setSent(sent).setFailed(results.size() - sent).build());
+      responseObserver.onCompleted();
+    });
   }
 }
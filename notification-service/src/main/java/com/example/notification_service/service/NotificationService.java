@@ -1,5 +1,9 @@
 package com.example.notification_service.service;
 
+import java.time.LocalDateTime;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
 
 import com.example.notification_service.entity.DeviceToken;
@@ -9,18 +13,29 @@ import lombok.RequiredArgsConstructor;
 @Service
 @RequiredArgsConstructor
 public class NotificationService {
+  // Registrations without a device id share this one, i.e. one token per user
+  static final String DEFAULT_DEVICE_ID = "default";
+  private static final Logger logger = LoggerFactory.getLogger(NotificationService.class);
   private final DeviceTokenRepository deviceTokenRepository;
+  private final DeviceTokenCache deviceTokenCache;
 
-  public void saveToken(String userId, String fcmToken) {
-    // DeviceToken deviceToken = DeviceToken.builder()
-    //     .userId(userId)
-    //     .fcmToken(fcmToken)
-    //     .build();
-    DeviceToken deviceToken = new DeviceToken();
-    deviceToken.setUserId(userId);
-    deviceToken.setFcmToken(fcmToken);
-    deviceTokenRepository.save(deviceToken);
+  public void saveToken(String userId, String deviceId, String fcmToken) {
+    String device = deviceId == null || deviceId.isBlank() ? DEFAULT_DEVICE_ID : deviceId;
+    // A token now registered to another user or device (e.g. after re-login) must not reach its old owner
+    for (DeviceToken previous : deviceTokenRepository.findByFcmToken(fcmToken)) {
+      if (!previous.getUserId().equals(userId) || !previous.getDeviceId().equals(device)) {
+        deviceTokenRepository.delete(previous);
+        deviceTokenCache.invalidate(previous.getUserId());
+      }
+    }
+    deviceTokenRepository.upsert(userId, device, fcmToken, LocalDateTime.now());
+    deviceTokenCache.invalidate(userId);
   }
 
-
+  // The push provider reported the token as unregistered
+  public void removeInvalidToken(String userId, String fcmToken) {
+    int removed = deviceTokenRepository.deleteByFcmToken(fcmToken);
+    deviceTokenCache.invalidate(userId);
+    logger.info("Removed {} invalid device token(s) of user {}", removed, userId);
+  }
 }
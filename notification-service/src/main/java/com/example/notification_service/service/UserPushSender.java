@@ -0,0 +1,96 @@
+package com.example.notification_service.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import com.example.notification_service.push.PushDispatcher;
+import com.example.notification_service.push.PushLane;
+import com.example.notification_service.push.PushMessage;
+import com.example.notification_service.push.PushResult;
+
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Fans one notification out to every registered device of a user. The
+ * result is a success if any device got the message; tokens the provider
+ * rejected for good are removed on a separate thread, so the database delete
+ * never holds up a push sender.
+ */
+@Component
+@RequiredArgsConstructor
+public class UserPushSender {
+  private static final Logger logger = LoggerFactory.getLogger(UserPushSender.class);
+  private final PushDispatcher pushDispatcher;
+  private final NotificationService notificationService;
+  private final ExecutorService tokenCleanup = Executors.newSingleThreadExecutor(
+      Thread.ofPlatform().name("push-token-cleanup").daemon().factory());
+
+  public CompletableFuture<PushResult> push(String userId, List<String> fcmTokens, String title, String body) {
+    return push(userId, fcmTokens, title, body, PushLane.URGENT, 0);
+  }
+
+  public CompletableFuture<PushResult> push(String userId, List<String> fcmTokens, String title, String body,
+      PushLane lane, long expiresAt) {
+    if (fcmTokens.isEmpty()) {
+      return CompletableFuture.completedFuture(PushResult.undeliverable("No FCM token for driver: " + userId));
+    }
+    List<CompletableFuture<PushResult>> devices = new ArrayList<>(fcmTokens.size());
+    for (String fcmToken : fcmTokens) {
+      PushMessage message = new PushMessage(fcmToken, title, body, Map.of("driverId", userId));
+      devices.add(pushDispatcher.submit(message, lane, expiresAt).thenApply(result -> {
+        if (result.invalidToken()) {
+          scheduleTokenRemoval(userId, fcmToken);
+        }
+        return result;
+      }));
+    }
+    if (devices.size() == 1) {
+      return devices.get(0);
+    }
+    return CompletableFuture.allOf(devices.toArray(new CompletableFuture[0])).thenApply(ignored -> {
+      // Report a retryable failure over a permanent one: another attempt may still reach that device
+      PushResult firstFailure = null;
+      for (CompletableFuture<PushResult> device : devices) {
+        PushResult result = device.join();
+        if (result.success()) {
+          return result;
+        }
+        if (firstFailure == null || firstFailure.permanent() && !result.permanent()) {
+          firstFailure = result;
+        }
+      }
+      return firstFailure;
+    });
+  }
+
+  @PreDestroy
+  void stop() {
+    tokenCleanup.shutdown();
+  }
+
+  private void scheduleTokenRemoval(String userId, String fcmToken) {
+    try {
+      tokenCleanup.execute(() -> removeInvalidToken(userId, fcmToken));
+    } catch (RejectedExecutionException e) {
+      logger.warn("Shutting down, keeping invalid token of user {} for now", userId);
+    }
+  }
+
+  private void removeInvalidToken(String userId, String fcmToken) {
+    try {
+      notificationService.removeInvalidToken(userId, fcmToken);
+    } catch (RuntimeException e) {
+      logger.warn("Could not remove invalid token of user {}: {}", userId, e.getMessage());
+    }
+  }
+}
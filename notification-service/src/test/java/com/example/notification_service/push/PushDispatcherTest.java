@@ -0,0 +1,73 @@
+package com.example.notification_service.push;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class PushDispatcherTest {
+
+  @Test
+  void groupsMessagesIntoBoundedBatchesAndCompletesEveryCaller() throws Exception {
+    List<Integer> batchSizes = new CopyOnWriteArrayList<>();
+    PushTransport transport = messages -> {
+      batchSizes.add(messages.size());
+      List<PushResult> results = new ArrayList<>();
+      for (PushMessage message : messages) {
+        results.add(PushResult.sent("id-" + message.token()));
+      }
+      return results;
+    };
+    PushDispatcher dispatcher = new PushDispatcher(transport, new SimpleMeterRegistry(), 10_000, 500, 50, 2);
+    dispatcher.start();
+
+    List<CompletableFuture<PushResult>> futures = new ArrayList<>();
+    for (int i = 0; i < 1200; i++) {
+      futures.add(dispatcher.submit(new PushMessage("t" + i, "title", "body", Map.of())));
+    }
+    CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).get(5, TimeUnit.SECONDS);
+    dispatcher.stop();
+
+    assertThat(futures.get(42).get().messageId()).isEqualTo("id-t42");
+    assertThat(batchSizes).allMatch(size -> size <= 500);
+    assertThat(batchSizes.stream().mapToInt(Integer::intValue).sum()).isEqualTo(1200);
+    assertThat(batchSizes.size()).isLessThan(10);
+  }
+
+  @Test
+  void sendsUrgentLaneFirstAndDropsExpiredMessages() throws Exception {
+    List<String> sent = new CopyOnWriteArrayList<>();
+    PushTransport transport = messages -> {
+      List<PushResult> results = new ArrayList<>();
+      for (PushMessage message : messages) {
+        sent.add(message.token());
+        results.add(PushResult.sent(message.token()));
+      }
+      return results;
+    };
+    PushDispatcher dispatcher = new PushDispatcher(transport, new SimpleMeterRegistry(), 100, 500, 0, 1);
+
+    // Queued before the collector starts, so ordering comes from the lanes alone
+    CompletableFuture<PushResult> info = dispatcher.submit(
+        new PushMessage("info", "title", "body", Map.of()), PushLane.INFO, 0);
+    CompletableFuture<PushResult> stale = dispatcher.submit(
+        new PushMessage("stale", "title", "body", Map.of()), PushLane.URGENT, System.currentTimeMillis() - 1);
+    CompletableFuture<PushResult> offer = dispatcher.submit(
+        new PushMessage("offer", "title", "body", Map.of()), PushLane.URGENT, System.currentTimeMillis() + 60_000);
+    dispatcher.start();
+    CompletableFuture.allOf(info, stale, offer).get(5, TimeUnit.SECONDS);
+    dispatcher.stop();
+
+    assertThat(sent).containsExactly("offer", "info");
+    assertThat(stale.get().success()).isFalse();
+    assertThat(offer.get().success()).isTrue();
+  }
+}
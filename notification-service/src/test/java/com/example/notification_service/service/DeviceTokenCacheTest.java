@@ -0,0 +1,61 @@
+package com.example.notification_service.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import com.example.notification_service.entity.DeviceToken;
+import com.example.notification_service.repository.DeviceTokenRepository;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class DeviceTokenCacheTest {
+
+  @Test
+  void loadsOnceUntilInvalidated() {
+    DeviceTokenRepository repository = mock(DeviceTokenRepository.class);
+    when(repository.findByUserId("d1")).thenReturn(List.of(token("d1", "phone", "t1")));
+    DeviceTokenCache cache = new DeviceTokenCache(repository, new SimpleMeterRegistry(), 100, 60_000);
+
+    assertThat(cache.get("d1")).containsExactly("t1");
+    assertThat(cache.get("d1")).containsExactly("t1");
+    verify(repository, times(1)).findByUserId("d1");
+
+    when(repository.findByUserId("d1")).thenReturn(List.of(token("d1", "phone", "t2")));
+    cache.invalidate("d1");
+    assertThat(cache.get("d1")).containsExactly("t2");
+  }
+
+  @Test
+  void batchLookupGroupsDevicesAndCachesUsersWithoutTokens() {
+    DeviceTokenRepository repository = mock(DeviceTokenRepository.class);
+    when(repository.findByUserIdIn(anyCollection())).thenReturn(List.of(
+        token("d1", "phone", "t1"),
+        token("d1", "tablet", "t2")));
+    DeviceTokenCache cache = new DeviceTokenCache(repository, new SimpleMeterRegistry(), 100, 60_000);
+
+    Map<String, List<String>> tokens = cache.getAll(List.of("d1", "d2"));
+    assertThat(tokens.get("d1")).containsExactlyInAnyOrder("t1", "t2");
+    assertThat(tokens.get("d2")).isEmpty();
+
+    cache.getAll(List.of("d1", "d2"));
+    assertThat(cache.get("d2")).isEmpty();
+    verify(repository, times(1)).findByUserIdIn(anyCollection());
+  }
+
+  private static DeviceToken token(String userId, String deviceId, String fcmToken) {
+    DeviceToken token = new DeviceToken();
+    token.setUserId(userId);
+    token.setDeviceId(deviceId);
+    token.setFcmToken(fcmToken);
+    return token;
+  }
+}
@@ -0,0 +1,87 @@
+package com.example.notification_service.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.example.notification_service.dto.NotificationCommand;
+import com.example.notification_service.push.PushLane;
+import com.example.notification_service.push.PushResult;
+import com.example.notification_service.repository.DeviceTokenRepository;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class NotificationCommandListenerTest {
+  private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+  private final UserPushSender userPushSender = mock(UserPushSender.class);
+  private NotificationCommandListener listener;
+
+  @BeforeEach
+  void setUp() {
+    DeviceTokenRepository repository = mock(DeviceTokenRepository.class);
+    DeviceTokenCache deviceTokenCache = new DeviceTokenCache(repository, meterRegistry, 100, 60_000);
+    when(userPushSender.push(anyString(), anyList(), anyString(), anyString(), any(), anyLong()))
+        .thenReturn(CompletableFuture.completedFuture(PushResult.sent("m")));
+    listener = new NotificationCommandListener(deviceTokenCache, userPushSender, meterRegistry);
+    ReflectionTestUtils.setField(listener, "dispatchTimeoutMs", 1000L);
+  }
+
+  @Test
+  void dropsExpiredOffersAndUndecodableRecordsAndPushesTheRestUrgentInOrder() {
+    long now = System.currentTimeMillis();
+    listener.onOffers(Arrays.asList(
+        command("d1", 1L, now + 60_000),
+        command("d2", 2L, now - 1),
+        null,
+        command("d3", 3L, null)));
+
+    InOrder order = inOrder(userPushSender);
+    order.verify(userPushSender).push(eq("d1"), anyList(), anyString(), anyString(), eq(PushLane.URGENT),
+        eq(now + 60_000));
+    order.verify(userPushSender).push(eq("d3"), anyList(), anyString(), anyString(), eq(PushLane.URGENT),
+        eq(0L));
+    verify(userPushSender, never()).push(eq("d2"), anyList(), anyString(), anyString(), any(), anyLong());
+    assertThat(meterRegistry.counter("notification.kafka.stale").count()).isEqualTo(1.0);
+  }
+
+  @Test
+  void informationalCommandsGoOnTheInfoLane() {
+    listener.onInfo(List.of(command("r1", 1L, null)));
+
+    verify(userPushSender).push(eq("r1"), anyList(), anyString(), anyString(), eq(PushLane.INFO), eq(0L));
+  }
+
+  @Test
+  void batchOfOnlyExpiredOffersPushesNothing() {
+    listener.onOffers(List.of(command("d1", 1L, System.currentTimeMillis() - 1)));
+
+    verify(userPushSender, never()).push(anyString(), anyList(), anyString(), anyString(), any(), anyLong());
+  }
+
+  private static NotificationCommand command(String userId, Long tripId, Long expiresAt) {
+    return NotificationCommand.newBuilder()
+        .setUserId(userId)
+        .setTitle("New Trip Offer")
+        .setBody("Trip " + tripId)
+        .setTripId(tripId)
+        .setExpiresAt(expiresAt)
+        .build();
+  }
+}
@@ -3,8 +3,10 @@ package com.example.trip_service;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
+@EnableScheduling
 public class TripServiceApplication {
 
   public static void main(String[] args) {
@@ -1,55 +1,168 @@
 package com.example.trip_service.client;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
+import com.example.notification_service.proto.BatchNotificationResponse;
 import com.example.notification_service.proto.NotificationServiceGrpc;
+import com.example.notification_service.proto.RecipientResult;
 import com.example.notification_service.proto.SendNotificationRequest;
 import com.example.notification_service.proto.SendNotificationResponse;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.MoreExecutors;
 
 import io.grpc.ManagedChannel;
-import io.grpc.ManagedChannelBuilder;
-import io.grpc.StatusRuntimeException;
+import io.grpc.Status;
+import io.grpc.stub.StreamObserver;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 
+/**
+ * Future-based client for notification-service. Calls carry a deadline and
+ * their futures never complete exceptionally: a failure or timeout shows up
+ * as a {@link Delivery} other than {@code SENT}. Latency per method and
+ * status goes to {@code notification.grpc.client.latency}.
+ */
 @Component
 public class NotificationGrpcClient {
-    private final NotificationServiceGrpc.NotificationServiceBlockingStub blockingStub;
+    private final NotificationServiceGrpc.NotificationServiceFutureStub futureStub;
+    private final NotificationServiceGrpc.NotificationServiceStub asyncStub;
+    private final MeterRegistry meterRegistry;
+    private final long deadlineMs;
+    private final long streamDeadlineMs;
     private final Logger logger = LoggerFactory.getLogger(NotificationGrpcClient.class);
 
-    public NotificationGrpcClient() {
-        ManagedChannel channel = ManagedChannelBuilder
-                .forAddress("notification-service", 28084)
-                .usePlaintext()
-                .build();
-        if (channel.isShutdown() || channel.isTerminated()) {
-            logger.error("gRPC channel is not active");
-            throw new IllegalStateException("gRPC channel is not active");
-        }
-        this.blockingStub = NotificationServiceGrpc.newBlockingStub(channel);
+    /**
+     * What the client knows about one notification. Only {@code FAILED} is
+     * safe to retry: {@code UNDELIVERABLE} will fail again (no device, token
+     * rejected) and {@code UNKNOWN} means the call broke after reaching the
+     * server, which may already have pushed it.
+     */
+    public enum Delivery {
+        SENT, FAILED, UNDELIVERABLE, UNKNOWN
+    }
+
+    public NotificationGrpcClient(ManagedChannel notificationChannel, MeterRegistry meterRegistry,
+            @Value("${trip.notification.grpc.deadline-ms:2000}") long deadlineMs,
+            @Value("${trip.notification.grpc.stream-deadline-ms:10000}") long streamDeadlineMs) {
+        this.futureStub = NotificationServiceGrpc.newFutureStub(notificationChannel);
+        this.asyncStub = NotificationServiceGrpc.newStub(notificationChannel);
+        this.meterRegistry = meterRegistry;
+        this.deadlineMs = deadlineMs;
+        this.streamDeadlineMs = streamDeadlineMs;
     }
 
-    public boolean sendNotification(String userId, String title, String body) {
+    public CompletableFuture<Delivery> sendNotification(String userId, String title, String body) {
         SendNotificationRequest request = SendNotificationRequest.newBuilder()
-                .setUserId(userId)
+                .setDriverId(userId)
                 .setTitle(title)
                 .setBody(body)
                 .build();
 
-        SendNotificationResponse response = SendNotificationResponse.newBuilder()
-                .setSuccess(false)
-                .setMessage("Failed to send notification due to gRPC error")
-                .build();
+        CompletableFuture<Delivery> result = new CompletableFuture<>();
+        long started = System.nanoTime();
+        Futures.addCallback(
+                futureStub.withDeadlineAfter(deadlineMs, TimeUnit.MILLISECONDS).sendNotification(request),
+                new FutureCallback<SendNotificationResponse>() {
+                    @Override
+                    public void onSuccess(SendNotificationResponse response) {
+                        record("SendNotification", Status.OK, started);
+                        if (!response.getSuccess()) {
+                            logger.warn("Failed to send notification: {}", response.getMessage());
+                        }
+                        result.complete(toDelivery(response.getSuccess(), response.getPermanent()));
+                    }
+
+                    @Override
+                    public void onFailure(Throwable t) {
+                        Status status = Status.fromThrowable(t);
+                        record("SendNotification", status, started);
+                        logger.error("SendNotification to {} failed: {}", userId, status);
+                        result.complete(callFailed(status));
+                    }
+                }, MoreExecutors.directExecutor());
+        return result;
+    }
+
+    /**
+     * Sends every request over one client stream. The result list follows the
+     * request order. When the stream itself fails no entry has a reported
+     * outcome, so all are {@code FAILED} if the server was unreachable and
+     * {@code UNKNOWN} otherwise.
+     */
+    public CompletableFuture<List<Delivery>> streamNotifications(List<SendNotificationRequest> requests) {
+        CompletableFuture<BatchNotificationResponse> summary = new CompletableFuture<>();
+        long started = System.nanoTime();
+        StreamObserver<SendNotificationRequest> stream = asyncStub
+                .withDeadlineAfter(streamDeadlineMs, TimeUnit.MILLISECONDS)
+                .streamNotifications(new StreamObserver<>() {
+                    @Override
+                    public void onNext(BatchNotificationResponse response) {
+                        summary.complete(response);
+                    }
+
+                    @Override
+                    public void onError(Throwable t) {
+                        record("StreamNotifications", Status.fromThrowable(t), started);
+                        summary.completeExceptionally(t);
+                    }
+
+                    @Override
+                    public void onCompleted() {
+                        record("StreamNotifications", Status.OK, started);
+                        summary.complete(BatchNotificationResponse.getDefaultInstance());
+                    }
+                });
         try {
-            response = blockingStub.sendNotification(request);
-        } catch (StatusRuntimeException e) {
-            logger.error("GRPC Status Code: " + e.getStatus().getCode().toString());
-            e.printStackTrace();
+            for (SendNotificationRequest request : requests) {
+                stream.onNext(request);
+            }
+            stream.onCompleted();
+        } catch (RuntimeException e) {
+            stream.onError(e);
         }
+        return summary.thenApply(response -> {
+            List<RecipientResult> results = response.getResultsList();
+            // Entries missing from the summary were never reported on
+            List<Delivery> delivered = new ArrayList<>(Collections.nCopies(requests.size(), Delivery.UNKNOWN));
+            for (int i = 0; i < Math.min(results.size(), delivered.size()); i++) {
+                delivered.set(i, toDelivery(results.get(i).getSuccess(), results.get(i).getPermanent()));
+            }
+            return delivered;
+        }).exceptionally(e -> {
+            Status status = Status.fromThrowable(e);
+            logger.error("Notification stream failed: {}", status);
+            return Collections.nCopies(requests.size(), callFailed(status));
+        });
+    }
 
-        if (!response.getSuccess()) {
-            System.err.println("Failed to send notification: " + response.getMessage());
+    private static Delivery toDelivery(boolean success, boolean permanent) {
+        if (success) {
+            return Delivery.SENT;
         }
-        return response.getSuccess();
+        return permanent ? Delivery.UNDELIVERABLE : Delivery.FAILED;
+    }
+
+    // UNAVAILABLE means the call never got through; any other failure may have reached the server
+    private static Delivery callFailed(Status status) {
+        return status.getCode() == Status.Code.UNAVAILABLE ? Delivery.FAILED : Delivery.UNKNOWN;
+    }
+
+    private void record(String method, Status status, long startedNanos) {
+        Timer.builder("notification.grpc.client.latency")
+                .tag("method", method)
+                .tag("status", status.getCode().name())
+                .publishPercentileHistogram()
+                .register(meterRegistry)
+                .record(System.nanoTime() - startedNanos, TimeUnit.NANOSECONDS);
     }
 }
@@ -0,0 +1,69 @@
+package com.example.trip_service.config;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import io.grpc.ManagedChannel;
+import io.grpc.ManagedChannelBuilder;
+
+/**
+ * Shared channel to notification-service with keepalive, so an idle
+ * connection that died overnight is noticed before the next rider message.
+ * Hedged SendNotification calls are off by default because a hedge that
+ * reaches the server twice pushes the message twice.
+ */
+@Configuration
+public class GrpcClientConfig {
+  private static final Logger logger = LoggerFactory.getLogger(GrpcClientConfig.class);
+  private static final String NOTIFICATION_SERVICE = "NotificationService";
+
+  @Value("${trip.notification.grpc.target:dns:///notification-service:28084}")
+  private String target;
+
+  @Value("${trip.notification.grpc.keepalive-time-ms:30000}")
+  private long keepaliveTimeMs;
+
+  @Value("${trip.notification.grpc.keepalive-timeout-ms:10000}")
+  private long keepaliveTimeoutMs;
+
+  @Value("${trip.notification.grpc.hedging.enabled:false}")
+  private boolean hedgingEnabled;
+
+  @Value("${trip.notification.grpc.hedging.max-attempts:2}")
+  private int hedgingMaxAttempts;
+
+  @Value("${trip.notification.grpc.hedging.delay-ms:100}")
+  private long hedgingDelayMs;
+
+  @Bean(destroyMethod = "shutdownNow")
+  ManagedChannel notificationChannel() {
+    ManagedChannelBuilder<?> builder = ManagedChannelBuilder.forTarget(target)
+        .usePlaintext()
+        .keepAliveTime(keepaliveTimeMs, TimeUnit.MILLISECONDS)
+        .keepAliveTimeout(keepaliveTimeoutMs, TimeUnit.MILLISECONDS)
+        .keepAliveWithoutCalls(true);
+    if (hedgingEnabled) {
+      builder.defaultServiceConfig(hedgingServiceConfig()).enableRetry();
+      logger.info("Hedging notification sends: {} attempts, {} ms apart", hedgingMaxAttempts, hedgingDelayMs);
+    }
+    return builder.build();
+  }
+
+  private Map<String, ?> hedgingServiceConfig() {
+    Map<String, Object> hedgingPolicy = Map.of(
+        "maxAttempts", (double) hedgingMaxAttempts,
+        "hedgingDelay", (hedgingDelayMs / 1000.0) + "s",
+        "nonFatalStatusCodes", List.of("UNAVAILABLE"));
+    Map<String, Object> methodConfig = Map.of(
+        "name", List.of(Map.of("service", NOTIFICATION_SERVICE, "method", "SendNotification")),
+        "hedgingPolicy", hedgingPolicy);
+    return Map.of("methodConfig", List.of(methodConfig));
+  }
+}
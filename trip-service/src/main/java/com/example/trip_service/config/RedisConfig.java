@@ -8,8 +8,14 @@ import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
 import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
 import org.springframework.data.redis.core.GeoOperations;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 import org.springframework.data.redis.serializer.StringRedisSerializer;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ClassPathResource;
+
+import com.example.trip_service.service.TripCache;
 
 @Configuration
 public class RedisConfig {
@@ -43,4 +49,33 @@ public class RedisConfig {
         return redisTemplate.opsForGeo();
     }
 
+    @Bean
+    RedisScript<Long> acceptTripScript() {
+        return RedisScript.of(new ClassPathResource("scripts/accept_trip.lua"), Long.class);
+    }
+
+    @Bean
+    RedisScript<Long> releaseTripClaimScript() {
+        return RedisScript.of(new ClassPathResource("scripts/release_trip_claim.lua"), Long.class);
+    }
+
+    @Bean
+    RedisScript<Long> releaseDriverScript() {
+        return RedisScript.of(new ClassPathResource("scripts/release_driver.lua"), Long.class);
+    }
+
+    @Bean
+    RedisScript<Long> cacheTripScript() {
+        return RedisScript.of(new ClassPathResource("scripts/cache_trip.lua"), Long.class);
+    }
+
+    @Bean
+    RedisMessageListenerContainer tripCacheInvalidationContainer(RedisConnectionFactory redisConnectionFactory,
+            TripCache tripCache) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(redisConnectionFactory);
+        container.addMessageListener(tripCache, new ChannelTopic(TripCache.INVALIDATION_CHANNEL));
+        return container;
+    }
+
 }
@@ -0,0 +1,22 @@
+package com.example.trip_service.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import com.example.trip_service.scheduling.HashedTimingWheel;
+
+@Configuration
+public class TimerConfig {
+  @Value("${trip.lifecycle.tick-ms:1000}")
+  private long tickMs;
+
+  @Value("${trip.lifecycle.wheel-size:1024}")
+  private int wheelSize;
+
+  // Lifecycle timeouts only enqueue a trip id, so they run on the timer thread itself
+  @Bean(destroyMethod = "stop")
+  HashedTimingWheel lifecycleTimer() {
+    return new HashedTimingWheel(tickMs, wheelSize, Runnable::run, "trip-lifecycle-timer");
+  }
+}
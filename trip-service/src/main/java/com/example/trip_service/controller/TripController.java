@@ -1,5 +1,7 @@
 package com.example.trip_service.controller;
 
+import java.util.List;
+
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 
@@ -9,9 +11,14 @@ import org.springframework.web.bind.annotation.*;
 
 import com.example.trip_service.dto.CreateTripRequest;
 import com.example.trip_service.dto.DriverAcceptRequest;
+import com.example.trip_service.dto.FareBatchRequest;
 import com.example.trip_service.dto.FareRequest;
 import com.example.trip_service.dto.FareResponse;
 import com.example.trip_service.dto.TripDto;
+import com.example.trip_service.dto.TripEventDto;
+import com.example.trip_service.dto.TripHistoryPage;
+import com.example.trip_service.projection.TripProjection;
+import com.example.trip_service.projection.TripState;
 import com.example.trip_service.service.TripService;
 
 @RestController
@@ -19,12 +26,32 @@ import com.example.trip_service.service.TripService;
 @RequiredArgsConstructor
 public class TripController {
   private final TripService tripService;
+  private final TripProjection tripProjection;
 
   @GetMapping("/fare")
   public ResponseEntity<FareResponse> calculateFare(@ModelAttribute FareRequest request) {
     return ResponseEntity.ok(tripService.calculateFare(request));
   }
 
+  @PostMapping("/fare/batch")
+  public ResponseEntity<List<FareResponse>> calculateFares(@RequestBody FareBatchRequest request) {
+    return ResponseEntity.ok(tripService.calculateFares(request));
+  }
+
+  @GetMapping(params = "riderId")
+  public ResponseEntity<TripHistoryPage> riderHistory(@RequestParam String riderId,
+      @RequestParam(required = false) String cursor,
+      @RequestParam(defaultValue = "20") int size) {
+    return ResponseEntity.ok(tripService.riderHistory(riderId, cursor, size));
+  }
+
+  @GetMapping(params = "driverId")
+  public ResponseEntity<TripHistoryPage> driverHistory(@RequestParam String driverId,
+      @RequestParam(required = false) String cursor,
+      @RequestParam(defaultValue = "20") int size) {
+    return ResponseEntity.ok(tripService.driverHistory(driverId, cursor, size));
+  }
+
   @PostMapping
   public ResponseEntity<TripDto> createTrip(@RequestBody CreateTripRequest request) {
     return ResponseEntity.ok(tripService.createTrip(request));
@@ -35,6 +62,29 @@ public class TripController {
     return ResponseEntity.ok(tripService.getTrip(id));
   }
 
+  @GetMapping("/{id}/events")
+  public ResponseEntity<List<TripEventDto>> getTripEvents(@PathVariable Long id) {
+    return ResponseEntity.ok(tripService.getTripEvents(id));
+  }
+
+  // Trip state rebuilt from trip_events (snapshot + newer events), not from the trips row
+  @GetMapping("/{id}/projection")
+  public ResponseEntity<TripState> getTripProjection(@PathVariable Long id) {
+    return ResponseEntity.ok(tripProjection.rebuild(id));
+  }
+
+  // Full replay runs in the background; 409 while another replay is still running
+  @PostMapping("/projection/replay")
+  public ResponseEntity<TripProjection.ReplayStatus> replayProjection() {
+    HttpStatus status = tripProjection.startReplay() ? HttpStatus.ACCEPTED : HttpStatus.CONFLICT;
+    return ResponseEntity.status(status).body(tripProjection.replayStatus());
+  }
+
+  @GetMapping("/projection/replay")
+  public ResponseEntity<TripProjection.ReplayStatus> replayStatus() {
+    return ResponseEntity.ok(tripProjection.replayStatus());
+  }
+
   @PostMapping("/{id}/cancel")
   public ResponseEntity<TripDto> cancelTrip(@PathVariable Long id, String userId) {
     return ResponseEntity.ok(tripService.cancelTrip(id, userId));
@@ -45,6 +95,16 @@ public class TripController {
     var driverId = request.driverId();
     return ResponseEntity.ok(tripService.acceptTrip(id, driverId));
   }
+
+  @PutMapping("/{id}/start")
+  public ResponseEntity<TripDto> startTrip(@PathVariable Long id, @RequestBody DriverAcceptRequest request) {
+    return ResponseEntity.ok(tripService.startTrip(id, request.driverId()));
+  }
+
+  @PutMapping("/{id}/complete")
+  public ResponseEntity<TripDto> completeTrip(@PathVariable Long id, @RequestBody DriverAcceptRequest request) {
+    return ResponseEntity.ok(tripService.completeTrip(id, request.driverId()));
+  }
 }
 
 
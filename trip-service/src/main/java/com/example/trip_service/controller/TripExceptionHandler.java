@@ -0,0 +1,36 @@
+package com.example.trip_service.controller;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ProblemDetail;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+
+import com.example.trip_service.exception.DriverNotAvailableException;
+import com.example.trip_service.exception.InvalidCoordinatesException;
+import com.example.trip_service.exception.InvalidCursorException;
+import com.example.trip_service.exception.InvalidTripStateException;
+import com.example.trip_service.exception.TripAlreadyTakenException;
+import com.example.trip_service.exception.TripNotFoundException;
+
+/**
+ * Maps trip-service exceptions to client errors instead of a 500.
+ */
+@RestControllerAdvice(assignableTypes = TripController.class)
+public class TripExceptionHandler {
+
+  @ExceptionHandler(TripNotFoundException.class)
+  public ProblemDetail handleNotFound(TripNotFoundException e) {
+    return ProblemDetail.forStatusAndDetail(HttpStatus.NOT_FOUND, e.getMessage());
+  }
+
+  @ExceptionHandler({ InvalidTripStateException.class, TripAlreadyTakenException.class,
+      DriverNotAvailableException.class })
+  public ProblemDetail handleConflict(RuntimeException e) {
+    return ProblemDetail.forStatusAndDetail(HttpStatus.CONFLICT, e.getMessage());
+  }
+
+  @ExceptionHandler({ InvalidCursorException.class, InvalidCoordinatesException.class })
+  public ProblemDetail handleBadRequest(RuntimeException e) {
+    return ProblemDetail.forStatusAndDetail(HttpStatus.BAD_REQUEST, e.getMessage());
+  }
+}
@@ -0,0 +1,12 @@
+package com.example.trip_service.dto;
+
+import java.util.List;
+
+// One route quoted for several vehicle types
+public record FareBatchRequest(
+    double sourceLat,
+    double sourceLng,
+    double destLat,
+    double destLng,
+    List<VehicleType> vehicleTypes) {
+}
@@ -2,6 +2,9 @@ package com.example.trip_service.dto;
 
 
 public record FareRequest(
-    String source,
-    String destination) {
+    double sourceLat,
+    double sourceLng,
+    double destLat,
+    double destLng,
+    VehicleType vehicleType) {
 }
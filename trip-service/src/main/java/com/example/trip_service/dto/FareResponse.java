@@ -3,5 +3,10 @@ package com.example.trip_service.dto;
 import java.math.BigDecimal;
 
 public record FareResponse(
-    BigDecimal fare) {
+    BigDecimal fare,
+    VehicleType vehicleType,
+    double distanceKm,
+    int sourceZone,
+    int destZone,
+    double surgeMultiplier) {
 }
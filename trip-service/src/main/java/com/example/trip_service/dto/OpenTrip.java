@@ -0,0 +1,12 @@
+package com.example.trip_service.dto;
+
+import java.time.LocalDateTime;
+
+// What the lifecycle engine needs to re-arm a PENDING or ACCEPTED trip's timeout
+public record OpenTrip(
+    Long id,
+    String riderId,
+    String driverId,
+    LocalDateTime createdAt,
+    LocalDateTime acceptedAt) {
+}
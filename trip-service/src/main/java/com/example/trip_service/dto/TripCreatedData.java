@@ -0,0 +1,13 @@
+package com.example.trip_service.dto;
+
+import java.math.BigDecimal;
+
+// Payload of TRIP_CREATED; the location fields match TripLocationData so existing consumers keep working
+public record TripCreatedData(
+    double sourceLat,
+    double sourceLng,
+    double destLat,
+    double destLng,
+    String riderId,
+    BigDecimal fare) {
+}
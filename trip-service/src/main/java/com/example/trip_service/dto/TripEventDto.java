@@ -0,0 +1,10 @@
+package com.example.trip_service.dto;
+
+import java.time.LocalDateTime;
+
+public record TripEventDto(
+    Long id,
+    String eventType,
+    String data,
+    LocalDateTime createdAt) {
+}
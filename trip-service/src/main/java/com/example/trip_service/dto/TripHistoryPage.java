@@ -0,0 +1,9 @@
+package com.example.trip_service.dto;
+
+import java.util.List;
+
+// nextCursor is null on the last page
+public record TripHistoryPage(
+    List<TripSummary> items,
+    String nextCursor) {
+}
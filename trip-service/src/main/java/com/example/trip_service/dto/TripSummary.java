@@ -0,0 +1,15 @@
+package com.example.trip_service.dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+import com.example.trip_service.entity.TripEntity.TripStatus;
+
+public record TripSummary(
+    Long id,
+    String riderId,
+    String driverId,
+    BigDecimal fare,
+    TripStatus status,
+    LocalDateTime createdAt) {
+}
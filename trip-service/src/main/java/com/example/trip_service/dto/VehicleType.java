@@ -0,0 +1,24 @@
+package com.example.trip_service.dto;
+
+// Base fare and per-km rate in VND
+public enum VehicleType {
+  BIKE(12000, 4300),
+  CAR_4(25000, 10500),
+  CAR_7(30000, 13000);
+
+  private final double baseFare;
+  private final double perKm;
+
+  VehicleType(double baseFare, double perKm) {
+    this.baseFare = baseFare;
+    this.perKm = perKm;
+  }
+
+  public double baseFare() {
+    return baseFare;
+  }
+
+  public double perKm() {
+    return perKm;
+  }
+}
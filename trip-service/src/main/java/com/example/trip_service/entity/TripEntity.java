@@ -8,12 +8,18 @@ import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "trips")
+// History indexes lead with the seek key and carry the TripSummary columns, so pages are index-only
+@Table(name = "trips", indexes = {
+    @Index(name = "ix_trips_rider_history", columnList = "rider_id, created_at, id, status, driver_id, fare"),
+    @Index(name = "ix_trips_driver_history", columnList = "driver_id, created_at, id, status, rider_id, fare"),
+    @Index(name = "ix_trips_status", columnList = "status, created_at")
+})
 @Data
 @Builder
 public class TripEntity {
   @Id
-  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "trips_seq")
+  @SequenceGenerator(name = "trips_seq", sequenceName = "trips_seq", allocationSize = 50)
   private Long id;
 
   @Column(name = "rider_id")
@@ -11,15 +11,20 @@ import java.time.LocalDateTime;
 import org.hibernate.annotations.CreationTimestamp;
 
 @Entity
-@Table(name = "trip_events")
+@Table(name = "trip_events", indexes = {
+    @Index(name = "ix_trip_events_outbox", columnList = "published_at, id"),
+    @Index(name = "ix_trip_events_trip", columnList = "trip_id, created_at, id")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 @Builder
 public class TripEventEntity {
 
+  // Pooled sequence: one round trip reserves 50 ids and keeps insert batching on
   @Id
-  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "trip_events_seq")
+  @SequenceGenerator(name = "trip_events_seq", sequenceName = "trip_events_seq", allocationSize = 50)
   private Long id;
 
   @Column(name = "trip_id", nullable = false)
@@ -34,4 +39,18 @@ public class TripEventEntity {
   @CreationTimestamp
   @Column(name = "created_at", nullable = false, updatable = false)
   private LocalDateTime createdAt;
+
+  // Outbox: Kafka topic/key to relay this event to (null = log only, stamped published on insert)
+  @Column(name = "topic", length = 100)
+  private String topic;
+
+  @Column(name = "message_key", length = 100)
+  private String messageKey;
+
+  @Column(name = "published_at")
+  private LocalDateTime publishedAt;
+
+  // Relay lease: the row is being sent until then; expired leases are reclaimed
+  @Column(name = "claimed_until")
+  private LocalDateTime claimedUntil;
 }
@@ -0,0 +1,35 @@
+package com.example.trip_service.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+// Projection state of a trip up to (last_event_at, last_event_id)
+@Entity
+@Table(name = "trip_snapshots")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class TripSnapshotEntity {
+
+  @Id
+  @Column(name = "trip_id")
+  private Long tripId;
+
+  @Column(name = "last_event_id", nullable = false)
+  private Long lastEventId;
+
+  @Column(name = "last_event_at", nullable = false)
+  private LocalDateTime lastEventAt;
+
+  @Column(name = "state", columnDefinition = "nvarchar(max)", nullable = false)
+  private String state;
+
+  @Column(name = "updated_at", nullable = false)
+  private LocalDateTime updatedAt;
+}
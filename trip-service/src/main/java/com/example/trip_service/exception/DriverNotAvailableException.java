@@ -0,0 +1,11 @@
+package com.example.trip_service.exception;
+
+public class DriverNotAvailableException extends RuntimeException {
+    public DriverNotAvailableException() {
+        super();
+    }
+
+    public DriverNotAvailableException(String message) {
+        super(message);
+    }
+}
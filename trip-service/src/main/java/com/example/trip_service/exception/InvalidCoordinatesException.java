@@ -0,0 +1,7 @@
+package com.example.trip_service.exception;
+
+public class InvalidCoordinatesException extends RuntimeException {
+    public InvalidCoordinatesException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,11 @@
+package com.example.trip_service.exception;
+
+public class InvalidTripStateException extends RuntimeException {
+    public InvalidTripStateException() {
+        super();
+    }
+
+    public InvalidTripStateException(String message) {
+        super(message);
+    }
+}
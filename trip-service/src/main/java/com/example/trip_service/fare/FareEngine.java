@@ -0,0 +1,179 @@
+package com.example.trip_service.fare;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.example.trip_service.dto.FareResponse;
+import com.example.trip_service.dto.VehicleType;
+import com.example.trip_service.exception.InvalidCoordinatesException;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+/**
+ * Fare quotes from a zone grid. The service area is cut into
+ * {@code rows x cols} pricing zones (plus one "outside" zone), so mapping a
+ * coordinate to its zone is plain arithmetic. The zone-to-zone base tariff is
+ * precomputed into a flat {@code double[]} at startup. Quotes are memoized
+ * on coordinates snapped to {@code quote-grid-deg}, so re-quoting while the
+ * user drags the pin mostly hits the cache.
+ */
+@Component
+public class FareEngine {
+  private static final double EARTH_RADIUS_KM = 6371.0088d;
+
+  private final double minLat;
+  private final double minLng;
+  private final double maxLat;
+  private final double maxLng;
+  private final int rows;
+  private final int cols;
+  private final int outsideZone;
+  private final int zoneCount;
+  private final double latStep;
+  private final double lngStep;
+  private final double[] tariff;
+  private final double quoteGridDeg;
+  private final Cache<QuoteKey, FareResponse> quotes;
+
+  public FareEngine(
+      @Value("${trip.fare.area.min-lat:10.35}") double minLat,
+      @Value("${trip.fare.area.min-lng:106.35}") double minLng,
+      @Value("${trip.fare.area.max-lat:11.20}") double maxLat,
+      @Value("${trip.fare.area.max-lng:107.05}") double maxLng,
+      @Value("${trip.fare.zone-rows:8}") int rows,
+      @Value("${trip.fare.zone-cols:8}") int cols,
+      @Value("${trip.fare.zone-hop-fee:2000}") double zoneHopFee,
+      @Value("${trip.fare.outside-fee:15000}") double outsideFee,
+      @Value("${trip.fare.quote-grid-deg:0.0001}") double quoteGridDeg,
+      @Value("${trip.fare.quote-cache-size:50000}") long quoteCacheSize,
+      @Value("${trip.fare.quote-cache-ttl-ms:60000}") long quoteCacheTtlMs) {
+    if (rows <= 0 || cols <= 0 || maxLat <= minLat || maxLng <= minLng) {
+      throw new IllegalArgumentException("Invalid fare zone grid");
+    }
+    this.minLat = minLat;
+    this.minLng = minLng;
+    this.maxLat = maxLat;
+    this.maxLng = maxLng;
+    this.rows = rows;
+    this.cols = cols;
+    this.outsideZone = rows * cols;
+    this.zoneCount = outsideZone + 1;
+    this.latStep = (maxLat - minLat) / rows;
+    this.lngStep = (maxLng - minLng) / cols;
+    this.tariff = buildTariff(zoneHopFee, outsideFee);
+    this.quoteGridDeg = quoteGridDeg;
+    this.quotes = Caffeine.newBuilder()
+        .maximumSize(quoteCacheSize)
+        .expireAfterWrite(Duration.ofMillis(quoteCacheTtlMs))
+        .build();
+  }
+
+  // Base tariff grows with the Manhattan distance between zones; leaving or entering the area adds a flat fee
+  private double[] buildTariff(double zoneHopFee, double outsideFee) {
+    double[] matrix = new double[zoneCount * zoneCount];
+    for (int from = 0; from < zoneCount; from++) {
+      for (int to = 0; to < zoneCount; to++) {
+        double fee;
+        if (from == outsideZone || to == outsideZone) {
+          fee = from == to ? outsideFee : outsideFee + zoneHopFee;
+        } else {
+          int hops = Math.abs(from / cols - to / cols) + Math.abs(from % cols - to % cols);
+          fee = hops * zoneHopFee;
+        }
+        matrix[from * zoneCount + to] = fee;
+      }
+    }
+    return matrix;
+  }
+
+  public int zoneOf(double lat, double lng) {
+    if (lat < minLat || lat >= maxLat || lng < minLng || lng >= maxLng) {
+      return outsideZone;
+    }
+    int row = Math.min((int) ((lat - minLat) / latStep), rows - 1);
+    int col = Math.min((int) ((lng - minLng) / lngStep), cols - 1);
+    return row * cols + col;
+  }
+
+  public double baseTariff(int fromZone, int toZone) {
+    return tariff[fromZone * zoneCount + toZone];
+  }
+
+  /**
+   * Throws {@link InvalidCoordinatesException} for NaN, infinite or out-of-range
+   * coordinates, which would otherwise snap to garbage cache keys.
+   */
+  public static void checkCoordinates(double lat, double lng) {
+    if (!(Math.abs(lat) <= 90d) || !(Math.abs(lng) <= 180d)) {
+      throw new InvalidCoordinatesException("Invalid coordinates: " + lat + "," + lng);
+    }
+  }
+
+  public FareResponse quote(double sourceLat, double sourceLng, double destLat, double destLng,
+      VehicleType vehicleType) {
+    checkCoordinates(sourceLat, sourceLng);
+    checkCoordinates(destLat, destLng);
+    VehicleType type = vehicleType == null ? VehicleType.CAR_4 : vehicleType;
+    QuoteKey key = new QuoteKey(snap(sourceLat), snap(sourceLng), snap(destLat), snap(destLng), type);
+    return quotes.get(key, this::compute);
+  }
+
+  public List<FareResponse> quoteAll(double sourceLat, double sourceLng, double destLat, double destLng,
+      List<VehicleType> vehicleTypes) {
+    List<VehicleType> types = vehicleTypes == null || vehicleTypes.isEmpty()
+        ? List.of(VehicleType.values())
+        : vehicleTypes;
+    List<FareResponse> result = new ArrayList<>(types.size());
+    for (VehicleType type : types) {
+      result.add(quote(sourceLat, sourceLng, destLat, destLng, type));
+    }
+    return result;
+  }
+
+  private FareResponse compute(QuoteKey key) {
+    double sLat = key.sourceLat() * quoteGridDeg;
+    double sLng = key.sourceLng() * quoteGridDeg;
+    double dLat = key.destLat() * quoteGridDeg;
+    double dLng = key.destLng() * quoteGridDeg;
+    int sourceZone = zoneOf(sLat, sLng);
+    int destZone = zoneOf(dLat, dLng);
+    double distanceKm = haversineKm(sLat, sLng, dLat, dLng);
+    VehicleType type = key.vehicleType();
+    double raw = type.baseFare() + baseTariff(sourceZone, destZone) + type.perKm() * distanceKm;
+    // Rounded to the nearest 1,000 VND
+    long fare = Math.round(raw / 1000d) * 1000L;
+    return new FareResponse(BigDecimal.valueOf(fare), type, Math.round(distanceKm * 100d) / 100d,
+        sourceZone, destZone, 1.0d);
+  }
+
+  // Surge is applied on top of the memoized quote so cached entries stay surge-free
+  public static FareResponse withSurge(FareResponse quote, double multiplier) {
+    if (multiplier <= 1.0d) {
+      return quote;
+    }
+    long fare = Math.round(quote.fare().doubleValue() * multiplier / 1000d) * 1000L;
+    return new FareResponse(BigDecimal.valueOf(fare), quote.vehicleType(), quote.distanceKm(),
+        quote.sourceZone(), quote.destZone(), multiplier);
+  }
+
+  private long snap(double deg) {
+    return Math.round(deg / quoteGridDeg);
+  }
+
+  static double haversineKm(double lat1, double lng1, double lat2, double lng2) {
+    double dLat = Math.toRadians(lat2 - lat1);
+    double dLng = Math.toRadians(lng2 - lng1);
+    double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+        + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2))
+            * Math.sin(dLng / 2) * Math.sin(dLng / 2);
+    return 2 * EARTH_RADIUS_KM * Math.asin(Math.min(1, Math.sqrt(a)));
+  }
+
+  private record QuoteKey(long sourceLat, long sourceLng, long destLat, long destLng, VehicleType vehicleType) {
+  }
+}
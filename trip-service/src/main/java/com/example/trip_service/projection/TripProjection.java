@@ -0,0 +1,180 @@
+package com.example.trip_service.projection;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.trip_service.dto.TripCreatedData;
+import com.example.trip_service.entity.TripEventEntity;
+import com.example.trip_service.entity.TripSnapshotEntity;
+import com.example.trip_service.exception.TripNotFoundException;
+import com.example.trip_service.repository.TripEventRepository;
+import com.example.trip_service.repository.TripSnapshotRepository;
+import com.example.trip_service.service.TripEventLog;
+
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import tools.jackson.core.type.TypeReference;
+import tools.jackson.databind.ObjectMapper;
+
+/**
+ * Rebuilds trip state from trip_events without reading the mutable trips row.
+ * A single trip starts from its snapshot and applies only newer events; a
+ * snapshot is written once enough events piled up or the trip ended.
+ * Snapshots are upserted and never overwritten by an older state, so
+ * concurrent rebuilds of one trip are harmless. The full replay is a
+ * background job: it walks trips in keyset pages of {@code replay-batch-size}
+ * and commits each page on its own, and only one replay runs at a time.
+ */
+@Component
+@RequiredArgsConstructor
+public class TripProjection {
+  private static final TypeReference<Map<String, Object>> MAP_TYPE = new TypeReference<>() {
+  };
+
+  private final TripEventRepository eventRepository;
+  private final TripSnapshotRepository snapshotRepository;
+  private final TransactionTemplate transactionTemplate;
+  private final ObjectMapper objectMapper = new ObjectMapper();
+  private final AtomicBoolean replaying = new AtomicBoolean();
+  private final ExecutorService replayExecutor = Executors.newSingleThreadExecutor(
+      Thread.ofPlatform().name("projection-replay").daemon().factory());
+  private volatile ReplayResult lastReplay;
+  private final Logger log = LoggerFactory.getLogger(this.getClass().getName());
+
+  @Value("${trip.projection.snapshot-every:5}")
+  private int snapshotEvery;
+
+  @Value("${trip.projection.replay-batch-size:500}")
+  private int replayBatchSize;
+
+  public record ReplayResult(long events, long trips, long elapsedMs) {
+  }
+
+  public record ReplayStatus(boolean running, ReplayResult lastReplay) {
+  }
+
+  @Transactional
+  public TripState rebuild(Long tripId) {
+    Optional<TripSnapshotEntity> snapshot = snapshotRepository.findById(tripId);
+    TripState state = snapshot.map(s -> objectMapper.readValue(s.getState(), TripState.class))
+        .orElseGet(() -> new TripState(tripId));
+    List<TripEventEntity> events = snapshot
+        .map(s -> eventRepository.findByTripIdAfter(tripId, s.getLastEventAt(), s.getLastEventId()))
+        .orElseGet(() -> eventRepository.findByTripIdOrderByCreatedAtAscIdAsc(tripId));
+    if (snapshot.isEmpty() && events.isEmpty()) {
+      throw new TripNotFoundException("Trip not found: " + tripId);
+    }
+    for (TripEventEntity event : events) {
+      apply(state, event);
+    }
+    if (events.size() >= snapshotEvery || (!events.isEmpty() && state.isTerminal())) {
+      saveSnapshot(state);
+    }
+    return state;
+  }
+
+  /**
+   * Starts a full replay in the background. Returns false without starting
+   * anything when a replay is already running.
+   */
+  public boolean startReplay() {
+    if (!replaying.compareAndSet(false, true)) {
+      return false;
+    }
+    try {
+      replayExecutor.execute(() -> {
+        try {
+          lastReplay = replayAll();
+        } catch (RuntimeException e) {
+          log.error("Projection replay failed", e);
+        } finally {
+          replaying.set(false);
+        }
+      });
+    } catch (RejectedExecutionException e) {
+      replaying.set(false);
+      throw e;
+    }
+    return true;
+  }
+
+  public ReplayStatus replayStatus() {
+    return new ReplayStatus(replaying.get(), lastReplay);
+  }
+
+  @PreDestroy
+  void stop() {
+    replayExecutor.shutdownNow();
+  }
+
+  private ReplayResult replayAll() {
+    long started = System.currentTimeMillis();
+    long events = 0;
+    long trips = 0;
+    Long afterTripId = Long.MIN_VALUE;
+    while (!Thread.currentThread().isInterrupted()) {
+      List<Long> tripIds = eventRepository.findTripIdsAfter(afterTripId, Limit.of(replayBatchSize));
+      if (tripIds.isEmpty()) {
+        break;
+      }
+      Integer replayed = transactionTemplate.execute(status -> replayTrips(tripIds));
+      events += replayed == null ? 0 : replayed;
+      trips += tripIds.size();
+      afterTripId = tripIds.getLast();
+    }
+    ReplayResult result = new ReplayResult(events, trips, System.currentTimeMillis() - started);
+    log.info("Replayed {} events into {} trip snapshots in {} ms", result.events(), result.trips(),
+        result.elapsedMs());
+    return result;
+  }
+
+  // One page of trips in one transaction; returns the number of events applied
+  private int replayTrips(List<Long> tripIds) {
+    List<TripEventEntity> events = eventRepository.findByTripIdInOrderByTripIdAscCreatedAtAscIdAsc(tripIds);
+    TripState current = null;
+    for (TripEventEntity event : events) {
+      if (current == null || !current.getTripId().equals(event.getTripId())) {
+        if (current != null) {
+          saveSnapshot(current);
+        }
+        current = new TripState(event.getTripId());
+      }
+      apply(current, event);
+    }
+    if (current != null) {
+      saveSnapshot(current);
+    }
+    return events.size();
+  }
+
+  private void saveSnapshot(TripState state) {
+    snapshotRepository.upsert(state.getTripId(), state.getLastEventId(), state.getLastEventAt(),
+        objectMapper.writeValueAsString(state), LocalDateTime.now());
+  }
+
+  private void apply(TripState state, TripEventEntity event) {
+    if (TripEventLog.TRIP_CREATED.equals(event.getEventType())) {
+      TripCreatedData data = event.getData() == null ? null
+          : objectMapper.readValue(event.getData(), TripCreatedData.class);
+      state.applyCreated(data, event.getCreatedAt());
+    } else {
+      Map<String, Object> data = event.getData() == null ? null : objectMapper.readValue(event.getData(), MAP_TYPE);
+      state.apply(event.getEventType(), data, event.getCreatedAt());
+    }
+    state.advance(event.getId(), event.getCreatedAt());
+  }
+}
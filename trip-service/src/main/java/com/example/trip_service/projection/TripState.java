@@ -0,0 +1,89 @@
+package com.example.trip_service.projection;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Map;
+
+import com.example.trip_service.dto.TripCreatedData;
+import com.example.trip_service.entity.TripEntity.TripStatus;
+import com.example.trip_service.service.TripEventLog;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Trip state folded from trip_events. Serialized as-is into trip_snapshots.
+ */
+@Data
+@NoArgsConstructor
+public class TripState {
+  private Long tripId;
+  private String riderId;
+  private String driverId;
+  private double sourceLat;
+  private double sourceLng;
+  private double destLat;
+  private double destLng;
+  private BigDecimal fare;
+  private TripStatus status;
+  private LocalDateTime createdAt;
+  private LocalDateTime acceptedAt;
+  private LocalDateTime startedAt;
+  private LocalDateTime completedAt;
+  private LocalDateTime cancelledAt;
+  private long eventCount;
+  private Long lastEventId;
+  private LocalDateTime lastEventAt;
+
+  public TripState(Long tripId) {
+    this.tripId = tripId;
+  }
+
+  public boolean isTerminal() {
+    return status == TripStatus.COMPLETED || status == TripStatus.CANCELLED;
+  }
+
+  void applyCreated(TripCreatedData data, LocalDateTime at) {
+    if (data != null) {
+      riderId = data.riderId();
+      sourceLat = data.sourceLat();
+      sourceLng = data.sourceLng();
+      destLat = data.destLat();
+      destLng = data.destLng();
+      fare = data.fare();
+    }
+    status = TripStatus.PENDING;
+    createdAt = at;
+  }
+
+  void apply(String eventType, Map<String, Object> data, LocalDateTime at) {
+    switch (eventType) {
+      case TripEventLog.TRIP_ACCEPTED -> {
+        driverId = data == null ? null : (String) data.get("driverId");
+        status = TripStatus.ACCEPTED;
+        acceptedAt = at;
+      }
+      case TripEventLog.TRIP_STARTED -> {
+        status = TripStatus.ONGOING;
+        startedAt = at;
+      }
+      case TripEventLog.TRIP_COMPLETED -> {
+        status = TripStatus.COMPLETED;
+        completedAt = at;
+      }
+      case TripEventLog.TRIP_CANCELLED, TripEventLog.TRIP_EXPIRED -> {
+        status = TripStatus.CANCELLED;
+        cancelledAt = at;
+      }
+      default -> {
+        // Unknown event types are kept in the count but do not change state
+      }
+    }
+  }
+
+  void advance(Long eventId, LocalDateTime at) {
+    eventCount++;
+    lastEventId = eventId;
+    lastEventAt = at;
+  }
+}
@@ -1,13 +1,54 @@
 package com.example.trip_service.repository;
 
 
-import java.util.Optional;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
 
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 
 import com.example.trip_service.entity.TripEventEntity;
 
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+
 
 public interface TripEventRepository extends JpaRepository<TripEventEntity, Long> {
-    Optional<TripEventEntity> findByTripId(Long tripId);
+    // Event order is (created_at, id): pooled ids are only increasing per instance
+    List<TripEventEntity> findByTripIdOrderByCreatedAtAscIdAsc(Long tripId);
+
+    @Query("SELECT e FROM TripEventEntity e WHERE e.tripId = :tripId "
+            + "AND (e.createdAt > :after OR (e.createdAt = :after AND e.id > :afterId)) "
+            + "ORDER BY e.createdAt, e.id")
+    List<TripEventEntity> findByTripIdAfter(@Param("tripId") Long tripId,
+            @Param("after") LocalDateTime after, @Param("afterId") Long afterId);
+
+    // Full replay walks trips in keyset pages of ids, then loads each page's events in order
+    @Query("SELECT DISTINCT e.tripId FROM TripEventEntity e WHERE e.tripId > :afterTripId ORDER BY e.tripId")
+    List<Long> findTripIdsAfter(@Param("afterTripId") Long afterTripId, Limit limit);
+
+    List<TripEventEntity> findByTripIdInOrderByTripIdAscCreatedAtAscIdAsc(Collection<Long> tripIds);
+
+    // SKIP LOCKED (lock timeout -2) lets several relays claim disjoint batches;
+    // rows whose claim lease is still running belong to another relay
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    @Query("SELECT e FROM TripEventEntity e WHERE e.publishedAt IS NULL AND e.topic IS NOT NULL "
+            + "AND (e.claimedUntil IS NULL OR e.claimedUntil < :now) ORDER BY e.id")
+    List<TripEventEntity> lockUnpublished(@Param("now") LocalDateTime now, Pageable page);
+
+    @Modifying
+    @Query("UPDATE TripEventEntity e SET e.claimedUntil = :claimedUntil WHERE e.id IN :ids")
+    int claim(@Param("ids") Collection<Long> ids, @Param("claimedUntil") LocalDateTime claimedUntil);
+
+    @Modifying
+    @Query("UPDATE TripEventEntity e SET e.publishedAt = :publishedAt WHERE e.id IN :ids")
+    int markPublished(@Param("ids") Collection<Long> ids, @Param("publishedAt") LocalDateTime publishedAt);
 }
@@ -1,10 +1,94 @@
 package com.example.trip_service.repository;
 
 
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+import org.springframework.data.domain.Limit;
+
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
+import com.example.trip_service.dto.OpenTrip;
+import com.example.trip_service.dto.TripSummary;
 import com.example.trip_service.entity.TripEntity;
+import com.example.trip_service.entity.TripEntity.TripStatus;
 
 
 public interface TripRepository extends JpaRepository<TripEntity, Long> {
+
+    // Conditional transition: returns 0 when the trip is no longer in the expected status
+    @Transactional
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE TripEntity t SET t.driverId = :driverId, t.status = :to, t.acceptedAt = :at, t.updatedAt = :at "
+            + "WHERE t.id = :id AND t.status = :from")
+    int assignDriver(@Param("id") Long id, @Param("driverId") String driverId,
+            @Param("from") TripStatus from, @Param("to") TripStatus to, @Param("at") LocalDateTime at);
+
+    // Keyset pagination, newest first: the seek predicate replaces OFFSET
+    @Query("SELECT new com.example.trip_service.dto.TripSummary(t.id, t.riderId, t.driverId, t.fare, t.status, t.createdAt) "
+            + "FROM TripEntity t WHERE t.riderId = :riderId ORDER BY t.createdAt DESC, t.id DESC")
+    List<TripSummary> findRiderHistory(@Param("riderId") String riderId, Limit limit);
+
+    @Query("SELECT new com.example.trip_service.dto.TripSummary(t.id, t.riderId, t.driverId, t.fare, t.status, t.createdAt) "
+            + "FROM TripEntity t WHERE t.riderId = :riderId "
+            + "AND (t.createdAt < :createdAt OR (t.createdAt = :createdAt AND t.id < :id)) "
+            + "ORDER BY t.createdAt DESC, t.id DESC")
+    List<TripSummary> findRiderHistoryAfter(@Param("riderId") String riderId,
+            @Param("createdAt") LocalDateTime createdAt, @Param("id") Long id, Limit limit);
+
+    @Query("SELECT new com.example.trip_service.dto.TripSummary(t.id, t.riderId, t.driverId, t.fare, t.status, t.createdAt) "
+            + "FROM TripEntity t WHERE t.driverId = :driverId ORDER BY t.createdAt DESC, t.id DESC")
+    List<TripSummary> findDriverHistory(@Param("driverId") String driverId, Limit limit);
+
+    @Query("SELECT new com.example.trip_service.dto.TripSummary(t.id, t.riderId, t.driverId, t.fare, t.status, t.createdAt) "
+            + "FROM TripEntity t WHERE t.driverId = :driverId "
+            + "AND (t.createdAt < :createdAt OR (t.createdAt = :createdAt AND t.id < :id)) "
+            + "ORDER BY t.createdAt DESC, t.id DESC")
+    List<TripSummary> findDriverHistoryAfter(@Param("driverId") String driverId,
+            @Param("createdAt") LocalDateTime createdAt, @Param("id") Long id, Limit limit);
+
+    @Transactional
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE TripEntity t SET t.status = :to, t.startedAt = :at, t.updatedAt = :at "
+            + "WHERE t.id = :id AND t.driverId = :driverId AND t.status = :from")
+    int markStarted(@Param("id") Long id, @Param("driverId") String driverId,
+            @Param("from") TripStatus from, @Param("to") TripStatus to, @Param("at") LocalDateTime at);
+
+    @Transactional
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE TripEntity t SET t.status = :to, t.completedAt = :at, t.updatedAt = :at "
+            + "WHERE t.id = :id AND t.driverId = :driverId AND t.status = :from")
+    int markCompleted(@Param("id") Long id, @Param("driverId") String driverId,
+            @Param("from") TripStatus from, @Param("to") TripStatus to, @Param("at") LocalDateTime at);
+
+    @Transactional
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE TripEntity t SET t.status = :to, t.cancelledAt = :at, t.updatedAt = :at "
+            + "WHERE t.id = :id AND t.status = :from")
+    int markCancelled(@Param("id") Long id, @Param("from") TripStatus from, @Param("to") TripStatus to,
+            @Param("at") LocalDateTime at);
+
+    // Bulk expiry; OUTPUT returns the ids that were actually still in the expected status
+    @Transactional
+    @Query(value = "UPDATE trips SET status = 'CANCELLED', cancelled_at = :at, updated_at = :at "
+            + "OUTPUT inserted.id WHERE id IN (:ids) AND status = :from", nativeQuery = true)
+    List<Long> expire(@Param("ids") Collection<Long> ids, @Param("from") String from,
+            @Param("at") LocalDateTime at);
+
+    // Keyset pages over ix_trips_status (status, created_at; id is the clustered key)
+    @Query("SELECT new com.example.trip_service.dto.OpenTrip(t.id, t.riderId, t.driverId, t.createdAt, t.acceptedAt) "
+            + "FROM TripEntity t WHERE t.status = :status ORDER BY t.createdAt, t.id")
+    List<OpenTrip> findOpenTrips(@Param("status") TripStatus status, Limit limit);
+
+    @Query("SELECT new com.example.trip_service.dto.OpenTrip(t.id, t.riderId, t.driverId, t.createdAt, t.acceptedAt) "
+            + "FROM TripEntity t WHERE t.status = :status "
+            + "AND (t.createdAt > :createdAt OR (t.createdAt = :createdAt AND t.id > :id)) "
+            + "ORDER BY t.createdAt, t.id")
+    List<OpenTrip> findOpenTripsAfter(@Param("status") TripStatus status,
+            @Param("createdAt") LocalDateTime createdAt, @Param("id") Long id, Limit limit);
 }
@@ -0,0 +1,31 @@
+package com.example.trip_service.repository;
+
+
+import java.time.LocalDateTime;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.example.trip_service.entity.TripSnapshotEntity;
+
+
+public interface TripSnapshotRepository extends JpaRepository<TripSnapshotEntity, Long> {
+    // Race-free upsert (HOLDLOCK) that never replaces a snapshot with one covering fewer events
+    @Transactional
+    @Modifying
+    @Query(value = "MERGE trip_snapshots WITH (HOLDLOCK) AS t "
+            + "USING (SELECT :tripId AS trip_id) AS s ON t.trip_id = s.trip_id "
+            + "WHEN MATCHED AND (t.last_event_at < :lastEventAt "
+            + "OR (t.last_event_at = :lastEventAt AND t.last_event_id < :lastEventId)) THEN "
+            + "UPDATE SET last_event_id = :lastEventId, last_event_at = :lastEventAt, state = :state, "
+            + "updated_at = :updatedAt "
+            + "WHEN NOT MATCHED THEN "
+            + "INSERT (trip_id, last_event_id, last_event_at, state, updated_at) "
+            + "VALUES (:tripId, :lastEventId, :lastEventAt, :state, :updatedAt);", nativeQuery = true)
+    int upsert(@Param("tripId") Long tripId, @Param("lastEventId") Long lastEventId,
+            @Param("lastEventAt") LocalDateTime lastEventAt, @Param("state") String state,
+            @Param("updatedAt") LocalDateTime updatedAt);
+}
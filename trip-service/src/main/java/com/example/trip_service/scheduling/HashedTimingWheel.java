@@ -0,0 +1,176 @@
+package com.example.trip_service.scheduling;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Hashed timing wheel. One daemon thread advances the wheel every
+ * {@code tickMs}; a timeout lands in bucket {@code deadlineTick % wheelSize}
+ * with the number of full rotations it still has to wait. Scheduling and
+ * cancelling are O(1) and thousands of pending timeouts cost one object each
+ * instead of a thread or a scheduled future. Expired tasks run on
+ * {@code taskExecutor} so a slow task never delays the tick.
+ * <p>
+ * The services share no Java module, so an identical copy lives in
+ * matching-service (com.example.matching_service.scheduling). Apply every fix
+ * to both, and keep both HashedTimingWheelTest copies in step.
+ */
+public class HashedTimingWheel {
+  private static final Logger logger = LoggerFactory.getLogger(HashedTimingWheel.class);
+
+  private final long tickNanos;
+  private final Queue<Timeout>[] buckets;
+  private final int mask;
+  private final Queue<Timeout> incoming = new ConcurrentLinkedQueue<>();
+  private final Executor taskExecutor;
+  private final AtomicInteger pending = new AtomicInteger();
+  private final AtomicBoolean started = new AtomicBoolean();
+  private final Thread worker;
+  private volatile boolean running = true;
+  private volatile long startNanos;
+  private long tick;
+
+  @SuppressWarnings("unchecked")
+  public HashedTimingWheel(long tickMs, int wheelSize, Executor taskExecutor, String threadName) {
+    if (tickMs <= 0) {
+      throw new IllegalArgumentException("tickMs must be positive");
+    }
+    int size = Integer.highestOneBit(Math.max(wheelSize, 2) - 1) << 1;
+    this.tickNanos = TimeUnit.MILLISECONDS.toNanos(tickMs);
+    this.buckets = new Queue[size];
+    for (int i = 0; i < size; i++) {
+      buckets[i] = new ArrayDeque<>();
+    }
+    this.mask = size - 1;
+    this.taskExecutor = taskExecutor;
+    this.worker = new Thread(this::run, threadName);
+    this.worker.setDaemon(true);
+  }
+
+  /**
+   * Pending timeout handle. Cancelling only flags it; the wheel drops it when
+   * its bucket is next visited.
+   */
+  public final class Timeout {
+    private final Runnable task;
+    private final long deadlineNanos;
+    private final AtomicBoolean done = new AtomicBoolean();
+    private volatile boolean cancelled;
+    private long remainingRounds;
+
+    private Timeout(Runnable task, long deadlineNanos) {
+      this.task = task;
+      this.deadlineNanos = deadlineNanos;
+    }
+
+    public boolean cancel() {
+      if (done.compareAndSet(false, true)) {
+        cancelled = true;
+        pending.decrementAndGet();
+        return true;
+      }
+      return false;
+    }
+
+    public boolean isCancelled() {
+      return cancelled;
+    }
+  }
+
+  public Timeout schedule(Runnable task, long delay, TimeUnit unit) {
+    start();
+    long deadline = System.nanoTime() - startNanos + unit.toNanos(Math.max(delay, 0));
+    Timeout timeout = new Timeout(task, deadline);
+    pending.incrementAndGet();
+    incoming.add(timeout);
+    return timeout;
+  }
+
+  public int pendingTimeouts() {
+    return pending.get();
+  }
+
+  public void start() {
+    if (started.compareAndSet(false, true)) {
+      startNanos = System.nanoTime();
+      worker.start();
+    }
+  }
+
+  public void stop() {
+    running = false;
+    worker.interrupt();
+  }
+
+  private void run() {
+    while (running) {
+      long deadline = tickNanos * (tick + 1);
+      long sleepNanos = deadline - (System.nanoTime() - startNanos);
+      if (sleepNanos > 0) {
+        try {
+          TimeUnit.NANOSECONDS.sleep(sleepNanos);
+        } catch (InterruptedException e) {
+          if (!running) {
+            return;
+          }
+          continue;
+        }
+      }
+      transferIncoming();
+      expire(buckets[(int) (tick & mask)], deadline);
+      tick++;
+    }
+  }
+
+  private void transferIncoming() {
+    // Bound the transfer so a flood of schedule() calls cannot starve the tick.
+    for (int i = 0; i < 100_000; i++) {
+      Timeout timeout = incoming.poll();
+      if (timeout == null) {
+        return;
+      }
+      if (timeout.done.get()) {
+        continue;
+      }
+      long ticks = timeout.deadlineNanos / tickNanos;
+      long targetTick = Math.max(ticks, tick);
+      timeout.remainingRounds = (targetTick - tick) / buckets.length;
+      buckets[(int) (targetTick & mask)].add(timeout);
+    }
+  }
+
+  private void expire(Queue<Timeout> bucket, long deadline) {
+    Iterator<Timeout> it = bucket.iterator();
+    while (it.hasNext()) {
+      Timeout timeout = it.next();
+      if (timeout.done.get()) {
+        it.remove();
+      } else if (timeout.remainingRounds <= 0 && timeout.deadlineNanos <= deadline) {
+        it.remove();
+        if (timeout.done.compareAndSet(false, true)) {
+          pending.decrementAndGet();
+          fire(timeout);
+        }
+      } else {
+        timeout.remainingRounds--;
+      }
+    }
+  }
+
+  private void fire(Timeout timeout) {
+    try {
+      taskExecutor.execute(timeout.task);
+    } catch (Exception e) {
+      logger.error("Failed to run timer task: {}", e.getMessage());
+    }
+  }
+}
@@ -0,0 +1,32 @@
+package com.example.trip_service.service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+import com.example.trip_service.exception.InvalidCursorException;
+
+/**
+ * Opaque keyset cursor for trip history: the (created_at, id) of the last row
+ * of the previous page, base64url encoded.
+ */
+record HistoryCursor(LocalDateTime createdAt, Long id) {
+
+  String encode() {
+    String raw = createdAt + "|" + id;
+    return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+  }
+
+  static HistoryCursor decode(String cursor) {
+    if (cursor == null || cursor.isBlank()) {
+      return null;
+    }
+    try {
+      String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+      int sep = raw.indexOf('|');
+      return new HistoryCursor(LocalDateTime.parse(raw.substring(0, sep)), Long.valueOf(raw.substring(sep + 1)));
+    } catch (RuntimeException e) {
+      throw new InvalidCursorException("Invalid history cursor: " + cursor, e);
+    }
+  }
+}
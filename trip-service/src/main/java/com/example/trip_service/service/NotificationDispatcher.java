@@ -0,0 +1,210 @@
+package com.example.trip_service.service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.stereotype.Component;
+
+import com.example.notification_service.dto.NotificationCommand;
+import com.example.notification_service.proto.SendNotificationRequest;
+import com.example.trip_service.client.NotificationGrpcClient;
+import com.example.trip_service.client.NotificationGrpcClient.Delivery;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Sends notifications off the request path. Notifications wait in a bounded
+ * queue drained by a fixed set of workers; a worker takes everything pending
+ * (up to {@code max-batch-size}) and sends it over one client stream, falling
+ * back to the unary call when only one is waiting. A send the server reported
+ * as failed, or that never reached it, is retried with exponential backoff;
+ * undeliverable notifications (no device) and sends with an unknown outcome
+ * are not, so a broken stream never re-pushes what may already have gone
+ * out. A full queue drops the notification instead of blocking the caller.
+ * Workers wait for each send, bounded by the client's deadline, so at most
+ * {@code workers} calls are in flight.
+ * <p>
+ * With {@code trip.notification.transport=kafka} notifications skip the queue
+ * and are published as {@link NotificationCommand}s on the
+ * {@code notification-info} topic instead, keyed by user, for
+ * notification-service's informational lane. The producer buffers and
+ * retries the send; once accepted by Kafka, delivery to devices is
+ * at-most-once.
+ */
+@Component
+public class NotificationDispatcher {
+  private final NotificationGrpcClient notificationClient;
+  private final KafkaTemplate<String, NotificationCommand> notificationKafkaTemplate;
+  private final Logger log = LoggerFactory.getLogger(this.getClass().getName());
+
+  @Value("${trip.notification.workers:4}")
+  private int workers;
+
+  @Value("${trip.notification.queue-capacity:1000}")
+  private int queueCapacity;
+
+  @Value("${trip.notification.max-batch-size:100}")
+  private int maxBatchSize;
+
+  @Value("${trip.notification.max-attempts:3}")
+  private int maxAttempts;
+
+  @Value("${trip.notification.retry-backoff-ms:500}")
+  private long retryBackoffMs;
+
+  // "grpc" sends through the queue above, "kafka" publishes to info-topic
+  @Value("${trip.notification.transport:grpc}")
+  private String transport;
+
+  @Value("${trip.notification.info-topic:notification-info}")
+  private String infoTopic;
+
+  private BlockingQueue<Pending> queue;
+  private ExecutorService workerPool;
+  private ScheduledExecutorService retryScheduler;
+  private volatile boolean running;
+
+  public NotificationDispatcher(NotificationGrpcClient notificationClient,
+      KafkaTemplate<String, NotificationCommand> notificationKafkaTemplate) {
+    this.notificationClient = notificationClient;
+    this.notificationKafkaTemplate = notificationKafkaTemplate;
+  }
+
+  @PostConstruct
+  void start() {
+    queue = new ArrayBlockingQueue<>(queueCapacity);
+    running = true;
+    workerPool = Executors.newFixedThreadPool(workers, Thread.ofPlatform().name("notify-", 0).daemon().factory());
+    for (int i = 0; i < workers; i++) {
+      workerPool.execute(this::work);
+    }
+    retryScheduler = Executors.newSingleThreadScheduledExecutor(
+        Thread.ofPlatform().name("notify-retry").daemon().factory());
+  }
+
+  @PreDestroy
+  void stop() throws InterruptedException {
+    running = false;
+    retryScheduler.shutdownNow();
+    workerPool.shutdown();
+    workerPool.awaitTermination(5, TimeUnit.SECONDS);
+  }
+
+  public void dispatch(String userId, String title, String body) {
+    if ("kafka".equalsIgnoreCase(transport)) {
+      publish(userId, title, body);
+      return;
+    }
+    submit(new Pending(new Notification(userId, title, body), 1));
+  }
+
+  public int queued() {
+    return queue.size();
+  }
+
+  private void publish(String userId, String title, String body) {
+    NotificationCommand command = NotificationCommand.newBuilder()
+        .setUserId(userId)
+        .setTitle(title)
+        .setBody(body)
+        .build();
+    try {
+      notificationKafkaTemplate.send(infoTopic, userId, command).whenComplete((result, e) -> {
+        if (e != null) {
+          log.warn("Publishing notification for {} failed: {}", userId, e.getMessage());
+        }
+      });
+    } catch (RuntimeException e) {
+      log.warn("Publishing notification for {} failed: {}", userId, e.getMessage());
+    }
+  }
+
+  private void submit(Pending pending) {
+    if (!queue.offer(pending)) {
+      log.warn("Notification queue full, dropping notification for {}", pending.notification().userId());
+    }
+  }
+
+  private void work() {
+    while (running || !queue.isEmpty()) {
+      List<Pending> batch = new ArrayList<>();
+      try {
+        Pending first = queue.poll(100, TimeUnit.MILLISECONDS);
+        if (first == null) {
+          continue;
+        }
+        batch.add(first);
+        queue.drainTo(batch, maxBatchSize - 1);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return;
+      }
+      List<Delivery> delivered = send(batch);
+      for (int i = 0; i < batch.size(); i++) {
+        Delivery delivery = delivered.get(i);
+        if (delivery == Delivery.FAILED) {
+          retry(batch.get(i));
+        } else if (delivery != Delivery.SENT) {
+          log.warn("Notification to {} not retried: {}", batch.get(i).notification().userId(), delivery);
+        }
+      }
+    }
+  }
+
+  private List<Delivery> send(List<Pending> batch) {
+    try {
+      if (batch.size() == 1) {
+        Notification notification = batch.get(0).notification();
+        return List.of(notificationClient.sendNotification(notification.userId(), notification.title(),
+            notification.body()).join());
+      }
+      List<SendNotificationRequest> requests = new ArrayList<>(batch.size());
+      for (Pending pending : batch) {
+        requests.add(SendNotificationRequest.newBuilder()
+            .setDriverId(pending.notification().userId())
+            .setTitle(pending.notification().title())
+            .setBody(pending.notification().body())
+            .build());
+      }
+      return notificationClient.streamNotifications(requests).join();
+    } catch (RuntimeException e) {
+      // The client never completes exceptionally; anything here failed before the call went out
+      log.warn("Sending {} notifications failed: {}", batch.size(), e.getMessage());
+      return Collections.nCopies(batch.size(), Delivery.FAILED);
+    }
+  }
+
+  private void retry(Pending pending) {
+    Notification notification = pending.notification();
+    int attempt = pending.attempt();
+    if (attempt >= maxAttempts) {
+      log.error("Giving up notification to {} after {} attempts", notification.userId(), attempt);
+      return;
+    }
+    long delay = retryBackoffMs << (attempt - 1);
+    try {
+      retryScheduler.schedule(() -> submit(new Pending(notification, attempt + 1)), delay, TimeUnit.MILLISECONDS);
+    } catch (RejectedExecutionException e) {
+      log.warn("Retry scheduler stopped, dropping notification for {}", notification.userId());
+    }
+  }
+
+  private record Notification(String userId, String title, String body) {
+  }
+
+  private record Pending(Notification notification, int attempt) {
+  }
+}
@@ -0,0 +1,118 @@
+package com.example.trip_service.service;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.trip_service.dto.TripEvent;
+import com.example.trip_service.entity.TripEventEntity;
+import com.example.trip_service.repository.TripEventRepository;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Relays committed trip_events rows to Kafka. Each run claims a batch of
+ * unpublished rows in a short transaction (skipping rows another instance
+ * holds or has leased), sends them in one go so the producer can batch and
+ * compress them, then marks the delivered rows published in a second
+ * transaction. No database lock is held while waiting for broker acks; rows
+ * that were not acknowledged are picked up again once their lease expires.
+ */
+@Component
+@RequiredArgsConstructor
+public class OutboxRelay {
+  private final TripEventRepository eventRepository;
+  private final KafkaTemplate<String, TripEvent> tripKafkaTemplate;
+  private final TransactionTemplate transactionTemplate;
+  private final Logger log = LoggerFactory.getLogger(this.getClass().getName());
+
+  @Value("${trip.outbox.batch-size:500}")
+  private int batchSize;
+
+  @Value("${trip.outbox.max-batches-per-run:20}")
+  private int maxBatchesPerRun;
+
+  @Value("${trip.outbox.send-timeout-ms:10000}")
+  private long sendTimeoutMs;
+
+  @Value("${trip.outbox.claim-lease-ms:30000}")
+  private long claimLeaseMs;
+
+  @Scheduled(fixedDelayString = "${trip.outbox.relay-interval-ms:100}")
+  public void relay() {
+    for (int i = 0; i < maxBatchesPerRun; i++) {
+      if (relayBatch() < batchSize) {
+        return;
+      }
+    }
+  }
+
+  private List<TripEventEntity> claimBatch() {
+    LocalDateTime now = LocalDateTime.now();
+    List<TripEventEntity> batch = eventRepository.lockUnpublished(now, PageRequest.of(0, batchSize));
+    if (!batch.isEmpty()) {
+      eventRepository.claim(batch.stream().map(TripEventEntity::getId).toList(),
+          now.plusNanos(TimeUnit.MILLISECONDS.toNanos(claimLeaseMs)));
+    }
+    return batch;
+  }
+
+  private int relayBatch() {
+    List<TripEventEntity> batch = transactionTemplate.execute(status -> claimBatch());
+    if (batch == null || batch.isEmpty()) {
+      return 0;
+    }
+
+    List<CompletableFuture<SendResult<String, TripEvent>>> futures = new ArrayList<>(batch.size());
+    for (TripEventEntity event : batch) {
+      futures.add(tripKafkaTemplate.send(event.getTopic(), event.getMessageKey(), toAvro(event)));
+    }
+    tripKafkaTemplate.flush();
+
+    // Stop at the first failure: rows before it are marked, the rest retry after the lease
+    long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(sendTimeoutMs);
+    List<Long> published = new ArrayList<>(batch.size());
+    for (int i = 0; i < futures.size(); i++) {
+      try {
+        futures.get(i).get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        published.add(batch.get(i).getId());
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        break;
+      } catch (Exception e) {
+        log.warn("Outbox relay failed for event {}: {}", batch.get(i).getId(), e.getMessage());
+        break;
+      }
+    }
+
+    if (!published.isEmpty()) {
+      transactionTemplate.executeWithoutResult(
+          status -> eventRepository.markPublished(published, LocalDateTime.now()));
+    }
+    log.debug("Outbox relayed {}/{} events", published.size(), batch.size());
+    return published.size() == batch.size() ? batch.size() : 0;
+  }
+
+  private TripEvent toAvro(TripEventEntity event) {
+    return TripEvent.newBuilder()
+        .setId(event.getId())
+        .setTripId(event.getTripId())
+        .setEventType(event.getEventType())
+        .setData(event.getData())
+        .setCreatedAt(event.getCreatedAt().atZone(ZoneId.systemDefault()).toInstant())
+        .build();
+  }
+}
@@ -0,0 +1,156 @@
+package com.example.trip_service.service;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.function.Function;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+
+import com.example.trip_service.dto.TripDto;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import tools.jackson.databind.ObjectMapper;
+
+/**
+ * Read-through cache for {@link TripDto}: a per-instance Caffeine L1 in front
+ * of a shared Redis L2. {@link #invalidate} drops both levels and publishes
+ * the trip id on {@link #INVALIDATION_CHANNEL} so every other instance evicts
+ * its L1 copy too.
+ * <p>
+ * Each invalidation also bumps a per-trip version in Redis. A loader reads
+ * the version before going to the database and only writes its result back
+ * if the version is unchanged, so a read that raced an update can never
+ * leave the pre-update row in either level.
+ */
+@Component
+public class TripCache implements MessageListener {
+  public static final String INVALIDATION_CHANNEL = "trip:cache:invalidate";
+  private static final String KEY_PREFIX = "trip:dto:";
+  private static final String VERSION_PREFIX = "trip:dto:version:";
+
+  private final RedisTemplate<String, String> redisTemplate;
+  private final RedisScript<Long> cacheTripScript;
+  private final ObjectMapper objectMapper = new ObjectMapper();
+  private final Cache<Long, TripDto> local;
+  private final Duration redisTtl;
+  private final Counter l1Hits;
+  private final Counter l1Misses;
+  private final Counter l2Hits;
+  private final Counter l2Misses;
+  private final Logger log = LoggerFactory.getLogger(this.getClass().getName());
+
+  public TripCache(RedisTemplate<String, String> redisTemplate, RedisScript<Long> cacheTripScript,
+      MeterRegistry meterRegistry,
+      @Value("${trip.cache.local.max-size:10000}") long localMaxSize,
+      @Value("${trip.cache.local.ttl-ms:5000}") long localTtlMs,
+      @Value("${trip.cache.redis.ttl-ms:60000}") long redisTtlMs) {
+    this.redisTemplate = redisTemplate;
+    this.cacheTripScript = cacheTripScript;
+    this.local = Caffeine.newBuilder()
+        .maximumSize(localMaxSize)
+        .expireAfterWrite(Duration.ofMillis(localTtlMs))
+        .build();
+    this.redisTtl = Duration.ofMillis(redisTtlMs);
+    this.l1Hits = meterRegistry.counter("trip.cache.hits", "level", "l1");
+    this.l1Misses = meterRegistry.counter("trip.cache.misses", "level", "l1");
+    this.l2Hits = meterRegistry.counter("trip.cache.hits", "level", "l2");
+    this.l2Misses = meterRegistry.counter("trip.cache.misses", "level", "l2");
+    meterRegistry.gauge("trip.cache.l1.size", local, Cache::estimatedSize);
+  }
+
+  public TripDto get(Long id, Function<Long, TripDto> loader) {
+    TripDto trip = local.getIfPresent(id);
+    if (trip != null) {
+      l1Hits.increment();
+      return trip;
+    }
+    l1Misses.increment();
+
+    trip = readRedis(id);
+    if (trip != null) {
+      l2Hits.increment();
+      local.put(id, trip);
+      return trip;
+    }
+    l2Misses.increment();
+
+    String version = readVersion(id);
+    trip = loader.apply(id);
+    if (writeRedis(trip, version)) {
+      local.put(id, trip);
+    }
+    return trip;
+  }
+
+  public void invalidate(Long id) {
+    local.invalidate(id);
+    try {
+      // Bump the version before deleting so in-flight loads cannot write back
+      redisTemplate.opsForValue().increment(VERSION_PREFIX + id);
+      redisTemplate.expire(VERSION_PREFIX + id, redisTtl.multipliedBy(2));
+      redisTemplate.delete(KEY_PREFIX + id);
+      redisTemplate.convertAndSend(INVALIDATION_CHANNEL, String.valueOf(id));
+    } catch (RuntimeException e) {
+      // L2 entries still expire after trip.cache.redis.ttl-ms
+      log.warn("Could not invalidate cached trip {}: {}", id, e.getMessage());
+    }
+  }
+
+  @Override
+  public void onMessage(Message message, byte[] pattern) {
+    try {
+      local.invalidate(Long.valueOf(new String(message.getBody())));
+    } catch (NumberFormatException e) {
+      log.warn("Ignoring malformed trip cache invalidation: {}", new String(message.getBody()));
+    }
+  }
+
+  private TripDto readRedis(Long id) {
+    try {
+      String json = redisTemplate.opsForValue().get(KEY_PREFIX + id);
+      return json == null ? null : objectMapper.readValue(json, TripDto.class);
+    } catch (RuntimeException e) {
+      log.warn("Could not read cached trip {}: {}", id, e.getMessage());
+      return null;
+    }
+  }
+
+  private String readVersion(Long id) {
+    try {
+      String version = redisTemplate.opsForValue().get(VERSION_PREFIX + id);
+      return version == null ? "" : version;
+    } catch (RuntimeException e) {
+      return null;
+    }
+  }
+
+  /**
+   * Returns false when the trip was invalidated while it was being loaded, in
+   * which case the loaded copy is not cached anywhere.
+   */
+  private boolean writeRedis(TripDto trip, String version) {
+    if (version == null) {
+      // Redis is unreachable: keep the short-lived L1 copy only
+      return true;
+    }
+    try {
+      Long cached = redisTemplate.execute(cacheTripScript,
+          List.of(KEY_PREFIX + trip.id(), VERSION_PREFIX + trip.id()),
+          version, objectMapper.writeValueAsString(trip), String.valueOf(redisTtl.toMillis()));
+      return cached != null && cached == 1L;
+    } catch (RuntimeException e) {
+      log.warn("Could not cache trip {}: {}", trip.id(), e.getMessage());
+      return true;
+    }
+  }
+}
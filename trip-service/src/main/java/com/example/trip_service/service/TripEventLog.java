@@ -0,0 +1,56 @@
+package com.example.trip_service.service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.stereotype.Component;
+
+import com.example.trip_service.entity.TripEventEntity;
+import com.example.trip_service.repository.TripEventRepository;
+
+import lombok.RequiredArgsConstructor;
+import tools.jackson.databind.ObjectMapper;
+
+/**
+ * Appends state transitions to trip_events. Call it inside the transaction
+ * that performs the transition so the log never diverges from trips.
+ * These rows have no topic and are stamped published on insert, so they
+ * stay out of the outbox index the relay scans for unpublished rows.
+ */
+@Component
+@RequiredArgsConstructor
+public class TripEventLog {
+  public static final String TRIP_CREATED = "TRIP_CREATED";
+  public static final String TRIP_ACCEPTED = "TRIP_ACCEPTED";
+  public static final String TRIP_STARTED = "TRIP_STARTED";
+  public static final String TRIP_COMPLETED = "TRIP_COMPLETED";
+  public static final String TRIP_CANCELLED = "TRIP_CANCELLED";
+  public static final String TRIP_EXPIRED = "TRIP_EXPIRED";
+
+  private final TripEventRepository eventRepository;
+  private final ObjectMapper objectMapper = new ObjectMapper();
+
+  public void append(Long tripId, String eventType, Map<String, ?> data) {
+    eventRepository.save(event(tripId, eventType, data));
+  }
+
+  public void appendAll(Collection<Long> tripIds, String eventType, Map<String, ?> data) {
+    List<TripEventEntity> events = new ArrayList<>(tripIds.size());
+    for (Long tripId : tripIds) {
+      events.add(event(tripId, eventType, data));
+    }
+    eventRepository.saveAll(events);
+  }
+
+  private TripEventEntity event(Long tripId, String eventType, Map<String, ?> data) {
+    return TripEventEntity.builder()
+        .tripId(tripId)
+        .eventType(eventType)
+        .data(data == null || data.isEmpty() ? null : objectMapper.writeValueAsString(data))
+        .publishedAt(LocalDateTime.now())
+        .build();
+  }
+}
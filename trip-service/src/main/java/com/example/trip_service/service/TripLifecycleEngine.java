@@ -0,0 +1,191 @@
+package com.example.trip_service.service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.trip_service.dto.OpenTrip;
+import com.example.trip_service.dto.StopMatchingCommand;
+import com.example.trip_service.entity.TripEntity;
+import com.example.trip_service.entity.TripEntity.TripStatus;
+import com.example.trip_service.repository.TripRepository;
+import com.example.trip_service.scheduling.HashedTimingWheel;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Timeouts for trips that never get matched (PENDING) or never get started
+ * (ACCEPTED). Each trip holds one timeout on the lifecycle timing wheel; when
+ * it fires the trip id is only queued, and {@link #flush()} expires all queued
+ * trips of a status with one bulk UPDATE. Timers live in memory, so they are
+ * re-armed from the database when the service starts.
+ */
+@Component
+@RequiredArgsConstructor
+public class TripLifecycleEngine {
+  private static final String FREE_DRIVERS_KEY = "drivers:geo:free";
+  private static final String IN_TRIP_DRIVERS_KEY = "drivers:geo:intrip";
+  // SQL Server allows 2100 parameters per statement
+  private static final int MAX_IDS_PER_UPDATE = 1000;
+
+  private final HashedTimingWheel lifecycleTimer;
+  private final TripRepository tripRepository;
+  private final TripCache tripCache;
+  private final NotificationDispatcher notificationDispatcher;
+  private final KafkaTemplate<String, StopMatchingCommand> matchingKafkaTemplate;
+  private final RedisTemplate<String, String> redisTemplate;
+  private final RedisScript<Long> releaseDriverScript;
+  private final TripEventLog tripEventLog;
+  private final TransactionTemplate transactionTemplate;
+  private final Map<Long, HashedTimingWheel.Timeout> timeouts = new ConcurrentHashMap<>();
+  private final Queue<Expiry> expiredPending = new ConcurrentLinkedQueue<>();
+  private final Queue<Expiry> expiredAccepted = new ConcurrentLinkedQueue<>();
+  private final Logger log = LoggerFactory.getLogger(this.getClass().getName());
+
+  @Value("${trip.lifecycle.match-timeout-ms:300000}")
+  private long matchTimeoutMs;
+
+  @Value("${trip.lifecycle.start-timeout-ms:900000}")
+  private long startTimeoutMs;
+
+  @Value("${trip.lifecycle.rearm-page-size:1000}")
+  private int rearmPageSize;
+
+  private record Expiry(Long tripId, String riderId, String driverId) {
+  }
+
+  public void onCreated(TripEntity trip) {
+    arm(new Expiry(trip.getId(), trip.getRiderId(), null), expiredPending, matchTimeoutMs);
+  }
+
+  public void onAccepted(TripEntity trip) {
+    arm(new Expiry(trip.getId(), trip.getRiderId(), trip.getDriverId()), expiredAccepted, startTimeoutMs);
+  }
+
+  // Started, completed or cancelled trips no longer need a timeout
+  public void disarm(Long tripId) {
+    HashedTimingWheel.Timeout timeout = timeouts.remove(tripId);
+    if (timeout != null) {
+      timeout.cancel();
+    }
+  }
+
+  public int armedTimers() {
+    return timeouts.size();
+  }
+
+  private void arm(Expiry expiry, Queue<Expiry> queue, long delayMs) {
+    HashedTimingWheel.Timeout timeout = lifecycleTimer.schedule(() -> {
+      timeouts.remove(expiry.tripId());
+      queue.add(expiry);
+    }, delayMs, TimeUnit.MILLISECONDS);
+    HashedTimingWheel.Timeout previous = timeouts.put(expiry.tripId(), timeout);
+    if (previous != null) {
+      previous.cancel();
+    }
+  }
+
+  @EventListener(ApplicationReadyEvent.class)
+  public void rearm() {
+    LocalDateTime now = LocalDateTime.now();
+    int pending = rearm(TripStatus.PENDING, now);
+    int accepted = rearm(TripStatus.ACCEPTED, now);
+    log.info("Re-armed lifecycle timers for {} pending and {} accepted trips", pending, accepted);
+  }
+
+  // Pages through one status with keyset pagination, loading only what a timer needs
+  private int rearm(TripStatus status, LocalDateTime now) {
+    int armed = 0;
+    List<OpenTrip> page = tripRepository.findOpenTrips(status, Limit.of(rearmPageSize));
+    while (!page.isEmpty()) {
+      for (OpenTrip trip : page) {
+        if (status == TripStatus.PENDING) {
+          long left = matchTimeoutMs - Duration.between(trip.createdAt(), now).toMillis();
+          arm(new Expiry(trip.id(), trip.riderId(), null), expiredPending, left);
+        } else {
+          LocalDateTime acceptedAt = trip.acceptedAt() != null ? trip.acceptedAt() : trip.createdAt();
+          long left = startTimeoutMs - Duration.between(acceptedAt, now).toMillis();
+          arm(new Expiry(trip.id(), trip.riderId(), trip.driverId()), expiredAccepted, left);
+        }
+      }
+      armed += page.size();
+      if (page.size() < rearmPageSize) {
+        break;
+      }
+      OpenTrip last = page.get(page.size() - 1);
+      page = tripRepository.findOpenTripsAfter(status, last.createdAt(), last.id(), Limit.of(rearmPageSize));
+    }
+    return armed;
+  }
+
+  @Scheduled(fixedDelayString = "${trip.lifecycle.flush-interval-ms:1000}")
+  public void flush() {
+    expire(expiredPending, TripStatus.PENDING);
+    expire(expiredAccepted, TripStatus.ACCEPTED);
+  }
+
+  private void expire(Queue<Expiry> queue, TripStatus from) {
+    while (!queue.isEmpty()) {
+      Map<Long, Expiry> batch = new HashMap<>();
+      Expiry expiry;
+      while (batch.size() < MAX_IDS_PER_UPDATE && (expiry = queue.poll()) != null) {
+        batch.put(expiry.tripId(), expiry);
+      }
+      if (batch.isEmpty()) {
+        return;
+      }
+      List<Long> expired;
+      try {
+        expired = transactionTemplate.execute(status -> {
+          List<Long> ids = tripRepository.expire(new ArrayList<>(batch.keySet()), from.name(), LocalDateTime.now());
+          tripEventLog.appendAll(ids, TripEventLog.TRIP_EXPIRED, Map.of("from", from.name()));
+          return ids;
+        });
+      } catch (RuntimeException e) {
+        log.error("Bulk expiry of {} {} trips failed, retrying next tick: {}", batch.size(), from, e.getMessage());
+        queue.addAll(batch.values());
+        return;
+      }
+      for (Long tripId : expired) {
+        afterExpiry(batch.get(tripId), from);
+      }
+      log.info("Expired {}/{} {} trips", expired.size(), batch.size(), from);
+    }
+  }
+
+  private void afterExpiry(Expiry expiry, TripStatus from) {
+    tripCache.invalidate(expiry.tripId());
+    if (from == TripStatus.PENDING) {
+      matchingKafkaTemplate.send("stop-matching-commands", String.valueOf(expiry.tripId()),
+          StopMatchingCommand.newBuilder().setTripId(expiry.tripId()).setDriverId(null).build());
+      notificationDispatcher.dispatch(expiry.riderId(), "Không tìm được tài xế",
+          "Chuyến #" + expiry.tripId() + " đã hết thời gian chờ tài xế.");
+    } else {
+      redisTemplate.execute(releaseDriverScript, List.of(IN_TRIP_DRIVERS_KEY, FREE_DRIVERS_KEY), expiry.driverId());
+      notificationDispatcher.dispatch(expiry.riderId(), "Chuyến đi bị hủy",
+          "Tài xế không bắt đầu chuyến #" + expiry.tripId() + " đúng hạn.");
+      notificationDispatcher.dispatch(expiry.driverId(), "Chuyến đi bị hủy",
+          "Chuyến #" + expiry.tripId() + " đã bị hủy do không bắt đầu đúng hạn.");
+    }
+  }
+}
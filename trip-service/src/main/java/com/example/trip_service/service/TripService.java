@@ -1,36 +1,44 @@
 package com.example.trip_service.service;
 
-import java.math.BigDecimal;
-import java.time.Instant;
 import java.time.LocalDateTime;
 import java.util.List;
-import java.util.UUID;
-import java.util.concurrent.TimeUnit;
+import java.util.Map;
+import java.util.function.IntSupplier;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.data.geo.Point;
-import org.springframework.data.redis.core.GeoOperations;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
 import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
-import com.example.trip_service.client.NotificationGrpcClient;
 import com.example.trip_service.dto.CreateTripRequest;
+import com.example.trip_service.dto.FareBatchRequest;
 import com.example.trip_service.dto.FareRequest;
 import com.example.trip_service.dto.FareResponse;
 import com.example.trip_service.dto.TripDto;
-import com.example.trip_service.dto.TripEvent;
-import com.example.trip_service.dto.TripLocationData;
+import com.example.trip_service.dto.TripHistoryPage;
+import com.example.trip_service.dto.TripSummary;
+import com.example.trip_service.dto.TripCreatedData;
+import com.example.trip_service.dto.TripEventDto;
 import com.example.trip_service.dto.StopMatchingCommand;
 import com.example.trip_service.entity.TripEntity;
 import com.example.trip_service.entity.TripEventEntity;
 import com.example.trip_service.entity.TripEntity.TripStatus;
+import com.example.trip_service.exception.DriverNotAvailableException;
+import com.example.trip_service.exception.InvalidTripStateException;
 import com.example.trip_service.exception.TripAlreadyTakenException;
 import com.example.trip_service.exception.TripNotFoundException;
+import com.example.trip_service.fare.FareEngine;
+import com.example.trip_service.geo.GeoHash;
 import com.example.trip_service.mapper.TripExtension;
 import com.example.trip_service.repository.TripEventRepository;
 import com.example.trip_service.repository.TripRepository;
+import com.example.trip_service.surge.SurgeAggregator;
 
 import lombok.RequiredArgsConstructor;
 import lombok.experimental.ExtensionMethod;
@@ -42,21 +50,56 @@ import tools.jackson.databind.ObjectMapper;
 })
 @RequiredArgsConstructor
 public class TripService {
+  private static final String FREE_DRIVERS_KEY = "drivers:geo:free";
+  private static final String IN_TRIP_DRIVERS_KEY = "drivers:geo:intrip";
+
   private final TripRepository tripRepository;
-  private final KafkaTemplate<String, TripEvent> tripKafkaTemplate;
   private final KafkaTemplate<String, StopMatchingCommand> matchingKafkaTemplate;
   private final TripEventRepository eventRepository;
   private final ObjectMapper objectMapper = new ObjectMapper();
   private final RedisTemplate<String, String> redisTemplate;
-  private final GeoOperations<String, String> geoOps;
-  private final NotificationGrpcClient notificationClient;
+  private final RedisScript<Long> acceptTripScript;
+  private final RedisScript<Long> releaseTripClaimScript;
+  private final RedisScript<Long> releaseDriverScript;
+  private final TripLifecycleEngine tripLifecycle;
+  private final TripEventLog tripEventLog;
+  private final TransactionTemplate transactionTemplate;
+  private final NotificationDispatcher notificationDispatcher;
+  private final TripCache tripCache;
+  private final FareEngine fareEngine;
+  private final SurgeAggregator surgeAggregator;
   private final TripEventRepository tripEventRepository;
   private final Logger log = LoggerFactory.getLogger(this.getClass().getName());
 
+  // "trip-id" spreads trips over all partitions, "geo-cell" keys them by the pickup geohash
+  @Value("${trip.events.partition-key:trip-id}")
+  private String partitionKey;
+
+  @Value("${trip.events.geo-cell-precision:5}")
+  private int geoCellPrecision;
+
+  @Value("${trip.history.max-page-size:100}")
+  private int maxHistoryPageSize;
+
+  @Value("${trip.accept.lock-ttl-ms:30000}")
+  private long acceptLockTtlMs;
+
   public FareResponse calculateFare(FareRequest request) {
-    return new FareResponse(new BigDecimal(0));
+    FareResponse quote = fareEngine.quote(request.sourceLat(), request.sourceLng(), request.destLat(),
+        request.destLng(), request.vehicleType());
+    return FareEngine.withSurge(quote, surgeAggregator.multiplier(request.sourceLat(), request.sourceLng()));
+  }
+
+  public List<FareResponse> calculateFares(FareBatchRequest request) {
+    List<FareResponse> quotes = fareEngine.quoteAll(request.sourceLat(), request.sourceLng(), request.destLat(),
+        request.destLng(), request.vehicleTypes());
+    double surge = surgeAggregator.multiplier(request.sourceLat(), request.sourceLng());
+    return quotes.stream()
+        .map(quote -> FareEngine.withSurge(quote, surge))
+        .toList();
   }
 
+  @Transactional
   public TripDto createTrip(CreateTripRequest request) {
     TripEntity tripEntity = TripEntity.builder()
         .riderId(request.riderId())
@@ -69,56 +112,107 @@ public class TripService {
         .status(TripEntity.TripStatus.PENDING)
         .build();
 
-    TripLocationData data = new TripLocationData(
+    TripCreatedData data = new TripCreatedData(
         request.sourceLat(),
         request.sourceLng(),
         request.destLat(),
-        request.destLng());
+        request.destLng(),
+        request.riderId(),
+        request.fare());
     String dataAsString = objectMapper.writeValueAsString(data);
 
     tripEntity = tripRepository.save(tripEntity);
+    // Relayed to Kafka by OutboxRelay once this transaction commits
     TripEventEntity eventEntity = TripEventEntity.builder()
         .tripId(tripEntity.getId())
-        .eventType("TRIP_CREATED")
+        .eventType(TripEventLog.TRIP_CREATED)
         .data(dataAsString)
+        .topic("trip-created-events")
+        .messageKey(eventKey(tripEntity))
         .build();
-
     eventRepository.save(eventEntity);
-    TripEvent avroEvent = TripEvent.newBuilder()
-        .setId(System.currentTimeMillis())
-        .setTripId(tripEntity.getId())
-        .setEventType("TRIP_CREATED")
-        .setData(dataAsString)
-        .setCreatedAt(Instant.now())
-        .build();
-    tripKafkaTemplate.send("trip-created-events", String.valueOf(tripEntity.getId()), avroEvent);
+    tripLifecycle.onCreated(tripEntity);
 
     return tripEntity.toDto();
   }
 
+  private String eventKey(TripEntity trip) {
+    if ("geo-cell".equalsIgnoreCase(partitionKey)) {
+      return GeoHash.encode(trip.getSourceLat(), trip.getSourceLng(), geoCellPrecision);
+    }
+    return String.valueOf(trip.getId());
+  }
+
   public TripDto getTrip(Long id) {
-    return tripRepository.findById(id).get().toDto();
+    return tripCache.get(id, tripId -> tripRepository.findById(tripId)
+        .orElseThrow(() -> new TripNotFoundException("Trip not found: " + tripId))
+        .toDto());
   }
 
-  public TripDto cancelTrip(Long id, String userId) {
-    TripEntity trip = tripRepository.findById(id).get();
-    if (trip.getStatus() == TripStatus.CANCELLED) {
-      log.info("Trip {} đã được hủy trước đó bởi rider {}", id, userId);
-      return trip.toDto();
+  public TripHistoryPage riderHistory(String riderId, String cursor, int size) {
+    int limit = pageSize(size);
+    HistoryCursor after = HistoryCursor.decode(cursor);
+    List<TripSummary> rows = after == null
+        ? tripRepository.findRiderHistory(riderId, Limit.of(limit + 1))
+        : tripRepository.findRiderHistoryAfter(riderId, after.createdAt(), after.id(), Limit.of(limit + 1));
+    return toPage(rows, limit);
+  }
+
+  public TripHistoryPage driverHistory(String driverId, String cursor, int size) {
+    int limit = pageSize(size);
+    HistoryCursor after = HistoryCursor.decode(cursor);
+    List<TripSummary> rows = after == null
+        ? tripRepository.findDriverHistory(driverId, Limit.of(limit + 1))
+        : tripRepository.findDriverHistoryAfter(driverId, after.createdAt(), after.id(), Limit.of(limit + 1));
+    return toPage(rows, limit);
+  }
+
+  private int pageSize(int size) {
+    return Math.max(1, Math.min(size, maxHistoryPageSize));
+  }
+
+  // One extra row is fetched to know whether another page exists
+  private TripHistoryPage toPage(List<TripSummary> rows, int limit) {
+    if (rows.size() <= limit) {
+      return new TripHistoryPage(rows, null);
     }
-    TripStatus oldStatus = trip.getStatus();
-    trip.setStatus(TripStatus.CANCELLED);
-    trip.setCancelledAt(LocalDateTime.now());
-    tripRepository.save(trip);
+    List<TripSummary> page = rows.subList(0, limit);
+    TripSummary last = page.getLast();
+    return new TripHistoryPage(page, new HistoryCursor(last.createdAt(), last.id()).encode());
+  }
+
+  public TripDto cancelTrip(Long id, String userId) {
+    // Conditional on the status we read: a concurrent accept/start makes the UPDATE miss and we re-read
+    TripEntity trip;
+    TripStatus oldStatus;
+    int updated;
+    do {
+      trip = tripRepository.findById(id)
+          .orElseThrow(() -> new TripNotFoundException("Trip not found: " + id));
+      oldStatus = trip.getStatus();
+      if (oldStatus == TripStatus.CANCELLED) {
+        log.info("Trip {} đã được hủy trước đó bởi rider {}", id, userId);
+        return trip.toDto();
+      }
+      if (oldStatus != TripStatus.PENDING && oldStatus != TripStatus.ACCEPTED && oldStatus != TripStatus.ONGOING) {
+        throw new InvalidTripStateException("Không thể hủy chuyến " + id + " ở trạng thái " + oldStatus);
+      }
+      TripStatus from = oldStatus;
+      updated = transition(id, TripEventLog.TRIP_CANCELLED, userId == null ? null : Map.of("by", userId),
+          () -> tripRepository.markCancelled(id, from, TripStatus.CANCELLED, LocalDateTime.now()));
+    } while (updated == 0);
+    trip = tripRepository.findById(id)
+        .orElseThrow(() -> new TripNotFoundException("Trip not found: " + id));
+    tripCache.invalidate(id);
+    tripLifecycle.disarm(id);
     log.info("Trip {} đã được hủy bởi rider {}. Trạng thái cũ: {}", id, userId, oldStatus);
-    // if (oldStatus == TripStatus.PENDING) {
-    //   StopMatchingCommand stopCmd = new StopMatchingCommand(id);
-    //   matchingKafkaTemplate.send("stop-matching-commands", stopCmd);
-    //   log.info("Đã gửi StopMatchingCommand cho trip {}", id);
-    // }
+    if (oldStatus == TripStatus.PENDING) {
+      stopMatching(id, null);
+    }
     if (oldStatus == TripStatus.ACCEPTED || oldStatus == TripStatus.ONGOING) {
-
-      notificationClient.sendNotification(
+      // Tài xế rảnh trở lại
+      redisTemplate.execute(releaseDriverScript, List.of(IN_TRIP_DRIVERS_KEY, FREE_DRIVERS_KEY), trip.getDriverId());
+      notificationDispatcher.dispatch(
           trip.getDriverId(),
           "Chuyến đi bị hủy",
           "Khách đã hủy chuyến #" + id + ". Lý do: ");
@@ -136,52 +230,126 @@ public class TripService {
     // TripEvent tripEvent = tripEventRepository.findByTr
   }
 
+  private void stopMatching(Long tripId, String acceptedDriverId) {
+    StopMatchingCommand stopCmd = StopMatchingCommand.newBuilder()
+        .setTripId(tripId)
+        .setDriverId(acceptedDriverId)
+        .build();
+    matchingKafkaTemplate.send("stop-matching-commands", String.valueOf(tripId), stopCmd);
+    log.info("Đã gửi StopMatchingCommand cho trip {}", tripId);
+  }
+
   public TripDto acceptTrip(Long tripId, String driverId) {
     String lockKey = "trip:lock:" + tripId;
-    String lockValue = UUID.randomUUID().toString(); // Giá trị độc nhất
-    boolean acquired = false;
-    String driverIdStr = driverId.toString();
+    List<String> keys = List.of(lockKey, FREE_DRIVERS_KEY, IN_TRIP_DRIVERS_KEY);
+
+    // 1. Lock + chuyển GeoSet free -> intrip trong một lần gọi script
+    Long claimed = redisTemplate.execute(acceptTripScript, keys, driverId, String.valueOf(acceptLockTtlMs));
+    if (claimed == null || claimed == 0) {
+      throw new TripAlreadyTakenException("Chuyến đã được nhận bởi tài xế khác");
+    }
+    if (claimed < 0) {
+      throw new DriverNotAvailableException("Tài xế " + driverId + " không ở trạng thái rảnh");
+    }
+
+    // 2. Cập nhật DB có điều kiện (status = PENDING)
+    int updated;
     try {
-      // 1. Thử lấy lock (SETNX + EXPIRE)
-      acquired = redisTemplate.opsForValue()
-          .setIfAbsent(lockKey, lockValue, 30, TimeUnit.SECONDS);
-      if (!acquired) {
-        throw new TripAlreadyTakenException("Chuyến đã được nhận bởi tài xế khác");
+      updated = transition(tripId, TripEventLog.TRIP_ACCEPTED, Map.of("driverId", driverId),
+          () -> tripRepository.assignDriver(tripId, driverId, TripStatus.PENDING, TripStatus.ACCEPTED,
+              LocalDateTime.now()));
+    } catch (RuntimeException e) {
+      releaseClaim(lockKey, driverId);
+      throw e;
+    }
+    if (updated == 0) {
+      releaseClaim(lockKey, driverId);
+      if (!tripRepository.existsById(tripId)) {
+        throw new TripNotFoundException("Trip not found: " + tripId);
       }
-      // 2. Kiểm tra Redis
-      List<Point> posList = geoOps.position("drivers:geo:free", driverIdStr);
-      var pos = posList.getFirst();
-      log.info("driver position = {}", pos);
-
-      // 3. Chuyển GeoSet
-      geoOps.remove("drivers:geo:free", driverIdStr);
-      geoOps.add("drivers:geo:intrip", new Point(pos.getX(), pos.getY()), driverIdStr);
-
-      // 4. Cập nhật DB
-      TripEntity trip = tripRepository.findById(tripId)
-          .orElseThrow(() -> new TripNotFoundException("Trip not found: " + tripId));
-      trip.setDriverId(driverId);
-      trip.setStatus(TripStatus.ACCEPTED);
-      tripRepository.save(trip);
-
-      // 5. Gửi thông báo tới rider
-      notificationClient.sendNotification(
-          trip.getRiderId(),
-          "Tài xế với id: " + driverId.toString() + " đã nhận cuốc xe!",
-          driverIdStr);
-
-      return trip.toDto();
-    } finally {
-      // 6. Xóa lock nếu là owner
-      if (acquired) {
-        String currentValue = redisTemplate.opsForValue().get(lockKey);
-        if (lockValue.equals(currentValue)) { // Kiểm tra owner
-          redisTemplate.delete(lockKey);
-        }
+      throw new TripAlreadyTakenException("Chuyến không còn ở trạng thái chờ");
+    }
+    tripCache.invalidate(tripId);
+    // Lock được giữ tới khi hết TTL để các tài xế khác bị từ chối ngay ở Redis
+
+    TripEntity trip = tripRepository.findById(tripId)
+        .orElseThrow(() -> new TripNotFoundException("Trip not found: " + tripId));
+    tripLifecycle.onAccepted(trip);
+    stopMatching(tripId, driverId);
+
+    // 3. Gửi thông báo tới rider (bất đồng bộ, không chặn request)
+    notificationDispatcher.dispatch(
+        trip.getRiderId(),
+        "Tài xế với id: " + driverId + " đã nhận cuốc xe!",
+        driverId);
+
+    return trip.toDto();
+  }
+
+  public TripDto startTrip(Long tripId, String driverId) {
+    int updated = transition(tripId, TripEventLog.TRIP_STARTED, Map.of("driverId", driverId),
+        () -> tripRepository.markStarted(tripId, driverId, TripStatus.ACCEPTED, TripStatus.ONGOING,
+            LocalDateTime.now()));
+    TripEntity trip = requireTransition(updated, tripId, "bắt đầu");
+    tripLifecycle.disarm(tripId);
+    tripCache.invalidate(tripId);
+    log.info("Trip {} đã bắt đầu bởi tài xế {}", tripId, driverId);
+
+    notificationDispatcher.dispatch(
+        trip.getRiderId(),
+        "Chuyến đi đã bắt đầu",
+        "Tài xế " + driverId + " đã bắt đầu chuyến #" + tripId);
+    return trip.toDto();
+  }
+
+  public TripDto completeTrip(Long tripId, String driverId) {
+    int updated = transition(tripId, TripEventLog.TRIP_COMPLETED, Map.of("driverId", driverId),
+        () -> tripRepository.markCompleted(tripId, driverId, TripStatus.ONGOING, TripStatus.COMPLETED,
+            LocalDateTime.now()));
+    TripEntity trip = requireTransition(updated, tripId, "hoàn thành");
+    tripCache.invalidate(tripId);
+    // Tài xế rảnh trở lại
+    redisTemplate.execute(releaseDriverScript, List.of(IN_TRIP_DRIVERS_KEY, FREE_DRIVERS_KEY), driverId);
+    log.info("Trip {} đã hoàn thành bởi tài xế {}", tripId, driverId);
+
+    notificationDispatcher.dispatch(
+        trip.getRiderId(),
+        "Chuyến đi đã hoàn thành",
+        "Chuyến #" + tripId + " đã hoàn thành. Cước phí: " + trip.getFare());
+    return trip.toDto();
+  }
+
+  // Runs a conditional status UPDATE and appends its event in the same transaction
+  private int transition(Long tripId, String eventType, Map<String, ?> data, IntSupplier update) {
+    Integer updated = transactionTemplate.execute(status -> {
+      int rows = update.getAsInt();
+      if (rows > 0) {
+        tripEventLog.append(tripId, eventType, data);
       }
+      return rows;
+    });
+    return updated == null ? 0 : updated;
+  }
+
+  public List<TripEventDto> getTripEvents(Long tripId) {
+    return eventRepository.findByTripIdOrderByCreatedAtAscIdAsc(tripId).stream()
+        .map(e -> new TripEventDto(e.getId(), e.getEventType(), e.getData(), e.getCreatedAt()))
+        .toList();
+  }
+
+  private TripEntity requireTransition(int updated, Long tripId, String action) {
+    TripEntity trip = tripRepository.findById(tripId)
+        .orElseThrow(() -> new TripNotFoundException("Trip not found: " + tripId));
+    if (updated == 0) {
+      throw new InvalidTripStateException(
+          "Không thể " + action + " chuyến " + tripId + " ở trạng thái " + trip.getStatus());
     }
-    // return new TripDto(driverId, driverId, driverId, 0, 0, 0, 0, null, null,
-    // null, null);
+    return trip;
+  }
+
+  private void releaseClaim(String lockKey, String driverId) {
+    List<String> keys = List.of(lockKey, IN_TRIP_DRIVERS_KEY, FREE_DRIVERS_KEY);
+    redisTemplate.execute(releaseTripClaimScript, keys, driverId);
   }
 
 }
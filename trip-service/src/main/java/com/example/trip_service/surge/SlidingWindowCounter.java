@@ -0,0 +1,87 @@
+package com.example.trip_service.surge;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free sliding window made of {@code buckets} time buckets of
+ * {@code bucketMs} each. Every slot remembers which bucket epoch it holds, so
+ * a slot left over from a previous lap is reset by the first writer of the
+ * new epoch and ignored by readers. A write racing that reset can be lost,
+ * which is fine for surge statistics.
+ */
+class SlidingWindowCounter {
+  private final long bucketMs;
+  private final int buckets;
+  private final AtomicLongArray epochs;
+  private final AtomicLongArray values;
+
+  SlidingWindowCounter(long bucketMs, int buckets) {
+    this.bucketMs = bucketMs;
+    this.buckets = buckets;
+    this.epochs = new AtomicLongArray(buckets);
+    this.values = new AtomicLongArray(buckets);
+    for (int i = 0; i < buckets; i++) {
+      epochs.set(i, Long.MIN_VALUE);
+    }
+  }
+
+  void add(long now, long delta) {
+    values.addAndGet(slot(now), delta);
+  }
+
+  // Keeps the largest sample seen in the current bucket
+  void sample(long now, long value) {
+    values.accumulateAndGet(slot(now), value, Math::max);
+  }
+
+  boolean hasCurrent(long now) {
+    long epoch = now / bucketMs;
+    return epochs.get((int) (epoch % buckets)) == epoch;
+  }
+
+  // True when any bucket in the window has been written, even with 0
+  boolean hasAny(long now) {
+    long oldest = now / bucketMs - buckets + 1;
+    for (int i = 0; i < buckets; i++) {
+      if (epochs.get(i) >= oldest) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  long sum(long now) {
+    long oldest = now / bucketMs - buckets + 1;
+    long total = 0;
+    for (int i = 0; i < buckets; i++) {
+      if (epochs.get(i) >= oldest) {
+        total += values.get(i);
+      }
+    }
+    return total;
+  }
+
+  // Mean of the buckets that hold a sample, 0 when none does
+  double average(long now) {
+    long oldest = now / bucketMs - buckets + 1;
+    long total = 0;
+    int filled = 0;
+    for (int i = 0; i < buckets; i++) {
+      if (epochs.get(i) >= oldest) {
+        total += values.get(i);
+        filled++;
+      }
+    }
+    return filled == 0 ? 0 : (double) total / filled;
+  }
+
+  private int slot(long now) {
+    long epoch = now / bucketMs;
+    int i = (int) (epoch % buckets);
+    long seen = epochs.get(i);
+    if (seen < epoch && epochs.compareAndSet(i, seen, epoch)) {
+      values.set(i, 0);
+    }
+    return i;
+  }
+}
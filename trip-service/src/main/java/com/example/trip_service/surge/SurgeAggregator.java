@@ -0,0 +1,232 @@
+package com.example.trip_service.surge;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.geo.Distance;
+import org.springframework.data.geo.GeoResults;
+import org.springframework.data.geo.Metrics;
+import org.springframework.data.redis.connection.RedisGeoCommands.GeoSearchCommandArgs;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.domain.geo.GeoReference;
+import org.springframework.data.redis.domain.geo.GeoShape;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.example.trip_service.dto.TripEvent;
+import com.example.trip_service.dto.TripLocationData;
+import com.example.trip_service.geo.GeoHash;
+
+import jakarta.annotation.PreDestroy;
+import tools.jackson.databind.ObjectMapper;
+
+/**
+ * Per-cell surge statistics. Demand is counted incrementally from
+ * trip-created-events (each instance consumes the topic in its own group, so
+ * all instances see all demand). Only demand creates a cell, and at most
+ * {@code max-cells} are tracked. Supply is the number of free drivers around
+ * the cell's first pickup, sampled once per bucket with a capped GEOSEARCH on
+ * {@code drivers:geo:free}, for cells that have demand in the window. Sampling
+ * runs on its own thread, off the shared scheduler, and pipelines the searches
+ * in chunks of {@code supply-pipeline-size}. Both live in
+ * {@link SlidingWindowCounter}s; quoting only reads them.
+ */
+@Component
+public class SurgeAggregator {
+  private static final byte[] FREE_DRIVERS_KEY = "drivers:geo:free".getBytes(StandardCharsets.UTF_8);
+
+  private final RedisTemplate<String, String> redisTemplate;
+  private final ObjectMapper objectMapper = new ObjectMapper();
+  private final Map<String, CellStats> cells = new ConcurrentHashMap<>();
+  private final ExecutorService samplingExecutor = Executors.newSingleThreadExecutor(
+      Thread.ofPlatform().name("surge-supply").daemon().factory());
+  private final AtomicBoolean sampling = new AtomicBoolean();
+  private final Logger log = LoggerFactory.getLogger(this.getClass().getName());
+
+  @Value("${trip.surge.enabled:true}")
+  private boolean enabled;
+
+  @Value("${trip.surge.cell-precision:5}")
+  private int cellPrecision;
+
+  @Value("${trip.surge.bucket-ms:10000}")
+  private long bucketMs;
+
+  @Value("${trip.surge.buckets:30}")
+  private int buckets;
+
+  @Value("${trip.surge.supply-radius-km:2.5}")
+  private double supplyRadiusKm;
+
+  @Value("${trip.surge.supply-sample-cap:200}")
+  private int supplySampleCap;
+
+  @Value("${trip.surge.sensitivity:0.5}")
+  private double sensitivity;
+
+  @Value("${trip.surge.max-multiplier:3.0}")
+  private double maxMultiplier;
+
+  @Value("${trip.surge.max-cells:5000}")
+  private int maxCells;
+
+  @Value("${trip.surge.supply-pipeline-size:500}")
+  private int supplyPipelineSize;
+
+  public SurgeAggregator(RedisTemplate<String, String> redisTemplate) {
+    this.redisTemplate = redisTemplate;
+  }
+
+  @KafkaListener(
+      topics = "trip-created-events",
+      groupId = "trip-service-surge-${trip.instance-id}",
+      autoStartup = "${trip.surge.enabled:true}")
+  public void onTripCreated(TripEvent event) {
+    if (event.getData() == null) {
+      return;
+    }
+    try {
+      TripLocationData data = objectMapper.readValue(event.getData().toString(), TripLocationData.class);
+      recordDemand(data.sourceLat(), data.sourceLng());
+    } catch (RuntimeException e) {
+      log.warn("Skipping trip event {} for surge: {}", event.getTripId(), e.getMessage());
+    }
+  }
+
+  public void recordDemand(double lat, double lng) {
+    if (!Double.isFinite(lat) || !Double.isFinite(lng)) {
+      return;
+    }
+    String key = GeoHash.encode(lat, lng, cellPrecision);
+    CellStats cell = cells.get(key);
+    if (cell == null) {
+      if (cells.size() >= maxCells) {
+        log.debug("Surge cell limit {} reached, dropping demand in {}", maxCells, key);
+        return;
+      }
+      cell = cells.computeIfAbsent(key, k -> new CellStats(lat, lng, bucketMs, buckets));
+    }
+    cell.demand.add(System.currentTimeMillis(), 1);
+  }
+
+  /**
+   * Multiplier for a pickup: 1.0 while demand in the window does not exceed
+   * supply, then growing with {@code sensitivity} per unit of excess ratio,
+   * capped at {@code max-multiplier} and rounded to 0.1. Cells without demand
+   * or without a supply sample yet quote 1.0.
+   */
+  public double multiplier(double lat, double lng) {
+    if (!enabled) {
+      return 1.0d;
+    }
+    CellStats cell = cells.get(GeoHash.encode(lat, lng, cellPrecision));
+    long now = System.currentTimeMillis();
+    if (cell == null || !cell.supply.hasAny(now)) {
+      return 1.0d;
+    }
+    double demand = cell.demand.sum(now);
+    double supply = Math.max(cell.supply.average(now), 1.0d);
+    double ratio = demand / supply;
+    if (ratio <= 1.0d) {
+      return 1.0d;
+    }
+    double multiplier = Math.min(1.0d + sensitivity * (ratio - 1.0d), maxMultiplier);
+    return Math.round(multiplier * 10.0d) / 10.0d;
+  }
+
+  // Hands the sampling pass to its own thread; a pass still running absorbs the trigger
+  @Scheduled(fixedDelayString = "${trip.surge.bucket-ms:10000}")
+  public void scheduleSupplySampling() {
+    if (enabled && sampling.compareAndSet(false, true)) {
+      samplingExecutor.execute(() -> {
+        try {
+          sampleSupply();
+        } finally {
+          sampling.set(false);
+        }
+      });
+    }
+  }
+
+  // Samples supply once per bucket for every cell that has demand in the window
+  public void sampleSupply() {
+    if (!enabled) {
+      return;
+    }
+    long now = System.currentTimeMillis();
+    List<CellStats> due = new ArrayList<>(Math.min(supplyPipelineSize, cells.size()));
+    for (CellStats cell : cells.values()) {
+      if (cell.demand.sum(now) > 0 && !cell.supply.hasCurrent(now)) {
+        due.add(cell);
+        if (due.size() == supplyPipelineSize) {
+          sampleSupply(due, now);
+          due.clear();
+        }
+      }
+    }
+    sampleSupply(due, now);
+  }
+
+  @PreDestroy
+  void stop() {
+    samplingExecutor.shutdownNow();
+  }
+
+  private void sampleSupply(List<CellStats> due, long now) {
+    if (due.isEmpty()) {
+      return;
+    }
+    GeoShape shape = GeoShape.byRadius(new Distance(supplyRadiusKm, Metrics.KILOMETERS));
+    GeoSearchCommandArgs args = GeoSearchCommandArgs.newGeoSearchArgs().limit(supplySampleCap);
+    List<Object> results;
+    try {
+      results = redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+        for (CellStats cell : due) {
+          connection.geoCommands().geoSearch(FREE_DRIVERS_KEY,
+              GeoReference.fromCoordinate(cell.lng, cell.lat), shape, args);
+        }
+        return null;
+      });
+    } catch (RuntimeException e) {
+      log.debug("Supply sampling of {} cells failed: {}", due.size(), e.getMessage());
+      return;
+    }
+    for (int i = 0; i < due.size() && i < results.size(); i++) {
+      int found = results.get(i) instanceof GeoResults<?> geoResults ? geoResults.getContent().size() : 0;
+      due.get(i).supply.sample(now, found);
+    }
+  }
+
+  // Drops cells with no demand and no supply sample left in the window
+  @Scheduled(fixedDelayString = "${trip.surge.prune-interval-ms:60000}")
+  public void prune() {
+    long now = System.currentTimeMillis();
+    cells.values().removeIf(cell -> cell.demand.sum(now) == 0 && cell.supply.average(now) == 0);
+  }
+
+  private static final class CellStats {
+    // Supply is searched around the first pickup seen in the cell
+    final double lat;
+    final double lng;
+    final SlidingWindowCounter demand;
+    final SlidingWindowCounter supply;
+
+    CellStats(double lat, double lng, long bucketMs, int buckets) {
+      this.lat = lat;
+      this.lng = lng;
+      this.demand = new SlidingWindowCounter(bucketMs, buckets);
+      this.supply = new SlidingWindowCounter(bucketMs, buckets);
+    }
+  }
+}
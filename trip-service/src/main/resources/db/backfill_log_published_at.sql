@@ -0,0 +1,5 @@
+-- Stamps log-only trip_events rows (no topic) written before TripEventLog set
+-- published_at, so they drop out of the outbox index the relay scans. A no-op
+-- once no such rows are left.
+IF OBJECT_ID(N'dbo.trip_events', N'U') IS NOT NULL
+  UPDATE dbo.trip_events SET published_at = created_at WHERE published_at IS NULL AND topic IS NULL;
@@ -0,0 +1,94 @@
+-- Moves trips.id and trip_events.id from IDENTITY to the pooled sequences the
+-- entities use (trips_seq, trip_events_seq, INCREMENT BY 50).
+--
+-- Runs on every start after Hibernate's schema update (see spring.sql.init.*
+-- in application.properties) and only touches a table whose id column is
+-- still an IDENTITY, so it is a no-op on new databases and after the first
+-- successful run. Each table is migrated in its own transaction:
+--   1. copy id into a plain BIGINT column,
+--   2. drop the indexes and primary key that reference id, then id itself,
+--   3. rename the copy to id and recreate the primary key and indexes,
+--   4. (re)start the sequence above the highest existing id.
+-- Hibernate's pooled optimizer treats a sequence value as the top of a block
+-- of 50 ids, so the sequence restarts at MAX(id) + 50: the first block handed
+-- out is MAX(id) + 1 .. MAX(id) + 50.
+SET XACT_ABORT ON;
+
+DECLARE @targets TABLE (table_name sysname, sequence_name sysname);
+INSERT INTO @targets VALUES (N'trips', N'trips_seq'), (N'trip_events', N'trip_events_seq');
+
+DECLARE @table sysname, @sequence sysname, @object_id int, @pk sysname,
+        @drop_indexes nvarchar(max), @create_indexes nvarchar(max), @next_id bigint, @sql nvarchar(max);
+
+DECLARE targets CURSOR LOCAL FAST_FORWARD FOR SELECT table_name, sequence_name FROM @targets;
+OPEN targets;
+FETCH NEXT FROM targets INTO @table, @sequence;
+WHILE @@FETCH_STATUS = 0
+BEGIN
+  SET @object_id = OBJECT_ID(N'dbo.' + QUOTENAME(@table), N'U');
+  IF @object_id IS NOT NULL AND COLUMNPROPERTY(@object_id, N'id', N'IsIdentity') = 1
+  BEGIN
+    BEGIN TRANSACTION;
+
+    -- Block writers for the duration of the rebuild
+    SET @sql = N'SELECT TOP (0) id FROM dbo.' + QUOTENAME(@table) + N' WITH (TABLOCKX, HOLDLOCK)';
+    EXEC sp_executesql @sql;
+
+    SELECT @pk = name FROM sys.key_constraints WHERE parent_object_id = @object_id AND type = 'PK';
+
+    SELECT @drop_indexes = N'', @create_indexes = N'';
+    SELECT
+      @drop_indexes += N'DROP INDEX ' + QUOTENAME(i.name) + N' ON dbo.' + QUOTENAME(@table) + N';',
+      @create_indexes += N'CREATE ' + CASE WHEN i.is_unique = 1 THEN N'UNIQUE ' ELSE N'' END
+        + N'INDEX ' + QUOTENAME(i.name) + N' ON dbo.' + QUOTENAME(@table) + N' ('
+        + (SELECT STRING_AGG(QUOTENAME(c.name) + CASE WHEN ic.is_descending_key = 1 THEN N' DESC' ELSE N'' END, N', ')
+                  WITHIN GROUP (ORDER BY ic.key_ordinal)
+           FROM sys.index_columns ic
+           JOIN sys.columns c ON c.object_id = ic.object_id AND c.column_id = ic.column_id
+           WHERE ic.object_id = i.object_id AND ic.index_id = i.index_id AND ic.is_included_column = 0)
+        + N')' + ISNULL(N' WHERE ' + i.filter_definition, N'') + N';'
+    FROM sys.indexes i
+    WHERE i.object_id = @object_id AND i.is_primary_key = 0 AND i.type > 0
+      AND EXISTS (SELECT 1 FROM sys.index_columns ic
+                  WHERE ic.object_id = i.object_id AND ic.index_id = i.index_id
+                    AND ic.column_id = COLUMNPROPERTY(@object_id, N'id', N'ColumnId'));
+
+    SET @sql = N'ALTER TABLE dbo.' + QUOTENAME(@table) + N' ADD id_seq BIGINT NULL';
+    EXEC sp_executesql @sql;
+    SET @sql = N'UPDATE dbo.' + QUOTENAME(@table) + N' SET id_seq = id';
+    EXEC sp_executesql @sql;
+    SET @sql = N'ALTER TABLE dbo.' + QUOTENAME(@table) + N' ALTER COLUMN id_seq BIGINT NOT NULL';
+    EXEC sp_executesql @sql;
+
+    EXEC sp_executesql @drop_indexes;
+    IF @pk IS NOT NULL
+    BEGIN
+      SET @sql = N'ALTER TABLE dbo.' + QUOTENAME(@table) + N' DROP CONSTRAINT ' + QUOTENAME(@pk);
+      EXEC sp_executesql @sql;
+    END
+    SET @sql = N'ALTER TABLE dbo.' + QUOTENAME(@table) + N' DROP COLUMN id';
+    EXEC sp_executesql @sql;
+
+    SET @sql = N'dbo.' + QUOTENAME(@table) + N'.id_seq';
+    EXEC sp_rename @sql, N'id', N'COLUMN';
+    SET @sql = N'ALTER TABLE dbo.' + QUOTENAME(@table) + N' ADD CONSTRAINT '
+      + QUOTENAME(ISNULL(@pk, N'PK_' + @table)) + N' PRIMARY KEY CLUSTERED (id)';
+    EXEC sp_executesql @sql;
+    EXEC sp_executesql @create_indexes;
+
+    SET @sql = N'SELECT @next_id = ISNULL(MAX(id), 0) + 50 FROM dbo.' + QUOTENAME(@table);
+    EXEC sp_executesql @sql, N'@next_id bigint OUTPUT', @next_id = @next_id OUTPUT;
+    IF OBJECT_ID(N'dbo.' + QUOTENAME(@sequence), N'SO') IS NULL
+      SET @sql = N'CREATE SEQUENCE dbo.' + QUOTENAME(@sequence) + N' AS BIGINT START WITH '
+        + CAST(@next_id AS nvarchar(20)) + N' INCREMENT BY 50';
+    ELSE
+      SET @sql = N'ALTER SEQUENCE dbo.' + QUOTENAME(@sequence) + N' RESTART WITH '
+        + CAST(@next_id AS nvarchar(20)) + N' INCREMENT BY 50';
+    EXEC sp_executesql @sql;
+
+    COMMIT TRANSACTION;
+  END
+  FETCH NEXT FROM targets INTO @table, @sequence;
+END
+CLOSE targets;
+DEALLOCATE targets;
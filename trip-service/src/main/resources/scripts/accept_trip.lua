@@ -0,0 +1,15 @@
+-- Claims a trip for a driver and moves the driver from the free to the in-trip geo set.
+-- KEYS[1] trip lock, KEYS[2] free drivers, KEYS[3] in-trip drivers
+-- ARGV[1] driver id (lock owner), ARGV[2] lock ttl in ms
+-- Returns 1 on success, 0 if the trip is already claimed, -1 if the driver is not free.
+if not redis.call('SET', KEYS[1], ARGV[1], 'NX', 'PX', ARGV[2]) then
+  return 0
+end
+local score = redis.call('ZSCORE', KEYS[2], ARGV[1])
+if not score then
+  redis.call('DEL', KEYS[1])
+  return -1
+end
+redis.call('ZREM', KEYS[2], ARGV[1])
+redis.call('ZADD', KEYS[3], score, ARGV[1])
+return 1
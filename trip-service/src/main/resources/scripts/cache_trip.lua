@@ -0,0 +1,10 @@
+-- Caches a trip DTO unless the trip was invalidated after the caller read its version.
+-- KEYS[1] cached dto, KEYS[2] invalidation version
+-- ARGV[1] version read before loading ('' if none), ARGV[2] dto json, ARGV[3] ttl in ms
+-- Returns 1 if the dto was cached, 0 if it was superseded.
+local version = redis.call('GET', KEYS[2]) or ''
+if version ~= ARGV[1] then
+  return 0
+end
+redis.call('SET', KEYS[1], ARGV[2], 'PX', ARGV[3])
+return 1
@@ -0,0 +1,11 @@
+-- Puts a driver back into the free geo set at its last known position.
+-- KEYS[1] in-trip drivers, KEYS[2] free drivers
+-- ARGV[1] driver id
+-- Returns 1 if the driver was moved, 0 if it was not in the in-trip set.
+local score = redis.call('ZSCORE', KEYS[1], ARGV[1])
+if not score then
+  return 0
+end
+redis.call('ZREM', KEYS[1], ARGV[1])
+redis.call('ZADD', KEYS[2], score, ARGV[1])
+return 1
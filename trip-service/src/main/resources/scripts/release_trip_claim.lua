@@ -0,0 +1,14 @@
+-- Undoes accept_trip.lua when the database refused the transition.
+-- KEYS[1] trip lock, KEYS[2] in-trip drivers, KEYS[3] free drivers
+-- ARGV[1] driver id (lock owner)
+-- Returns 1 if the claim was released, 0 if the lock belongs to someone else.
+if redis.call('GET', KEYS[1]) ~= ARGV[1] then
+  return 0
+end
+local score = redis.call('ZSCORE', KEYS[2], ARGV[1])
+if score then
+  redis.call('ZREM', KEYS[2], ARGV[1])
+  redis.call('ZADD', KEYS[3], score, ARGV[1])
+end
+redis.call('DEL', KEYS[1])
+return 1
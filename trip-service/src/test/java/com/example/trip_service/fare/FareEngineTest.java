@@ -0,0 +1,54 @@
+package com.example.trip_service.fare;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.example.trip_service.dto.FareResponse;
+import com.example.trip_service.dto.VehicleType;
+import com.example.trip_service.exception.InvalidCoordinatesException;
+
+class FareEngineTest {
+  private final FareEngine engine = new FareEngine(10.0, 106.0, 11.0, 107.0, 4, 4,
+      2000, 15000, 0.0001, 1000, 60000);
+
+  @Test
+  void zoneLookupAndTariffFollowTheGrid() {
+    assertThat(engine.zoneOf(10.1, 106.1)).isZero();
+    assertThat(engine.zoneOf(10.9, 106.9)).isEqualTo(15);
+    assertThat(engine.zoneOf(12.0, 106.5)).isEqualTo(16);
+
+    assertThat(engine.baseTariff(0, 0)).isZero();
+    assertThat(engine.baseTariff(0, 15)).isEqualTo(6 * 2000d);
+    assertThat(engine.baseTariff(16, 16)).isEqualTo(15000d);
+  }
+
+  @Test
+  void quotesAreRoundedMemoizedAndOrderedByVehicle() {
+    FareResponse first = engine.quote(10.80, 106.60, 10.85, 106.70, VehicleType.CAR_4);
+    FareResponse nudged = engine.quote(10.800001, 106.600001, 10.85, 106.70, VehicleType.CAR_4);
+
+    assertThat(nudged).isSameAs(first);
+    assertThat(first.fare().longValue() % 1000).isZero();
+
+    List<FareResponse> all = engine.quoteAll(10.80, 106.60, 10.85, 106.70, null);
+    assertThat(all).extracting(FareResponse::vehicleType).containsExactly(VehicleType.values());
+    assertThat(all.get(0).fare()).isLessThan(all.get(1).fare());
+    assertThat(all.get(1).fare()).isLessThan(all.get(2).fare());
+  }
+
+  @Test
+  void invalidCoordinatesAreRejected() {
+    assertThatExceptionOfType(InvalidCoordinatesException.class)
+        .isThrownBy(() -> engine.quote(Double.NaN, 106.60, 10.85, 106.70, VehicleType.CAR_4));
+    assertThatExceptionOfType(InvalidCoordinatesException.class)
+        .isThrownBy(() -> engine.quote(10.80, 106.60, 10.85, Double.POSITIVE_INFINITY, VehicleType.CAR_4));
+    assertThatExceptionOfType(InvalidCoordinatesException.class)
+        .isThrownBy(() -> engine.quote(91, 106.60, 10.85, 106.70, VehicleType.CAR_4));
+    assertThatExceptionOfType(InvalidCoordinatesException.class)
+        .isThrownBy(() -> engine.quoteAll(10.80, -180.5, 10.85, 106.70, null));
+  }
+}
@@ -0,0 +1,24 @@
+package com.example.trip_service.geo;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+
+class GeoHashTest {
+
+  @Test
+  void encodesKnownReferencePoints() {
+    assertThat(GeoHash.encode(57.64911, 10.40744, 11)).isEqualTo("u4pruydqqvj");
+    assertThat(GeoHash.encode(42.6, -5.6, 5)).isEqualTo("ezs42");
+    assertThat(GeoHash.encode(-25.382708, -49.265506, 9)).isEqualTo("6gkzwgjzn");
+  }
+
+  @Test
+  void shorterPrecisionIsAPrefixAndCellEdgesStayConsistent() {
+    assertThat(GeoHash.encode(10.8231, 106.6297, 7)).startsWith(GeoHash.encode(10.8231, 106.6297, 5));
+    // Lower bounds belong to the cell, upper bounds to the next one
+    assertThat(GeoHash.encode(0, 0, 1)).isEqualTo("s");
+    assertThat(GeoHash.encode(-90, -180, 3)).isEqualTo("000");
+    assertThat(GeoHash.encode(90, 180, 3)).isEqualTo("zzz");
+  }
+}
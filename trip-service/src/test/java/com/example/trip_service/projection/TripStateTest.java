@@ -0,0 +1,39 @@
+package com.example.trip_service.projection;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import com.example.trip_service.dto.TripCreatedData;
+import com.example.trip_service.entity.TripEntity.TripStatus;
+import com.example.trip_service.service.TripEventLog;
+
+class TripStateTest {
+
+  @Test
+  void foldsTransitionsInOrder() {
+    LocalDateTime t0 = LocalDateTime.of(2025, 1, 1, 8, 0);
+    TripState state = new TripState(7L);
+
+    state.applyCreated(new TripCreatedData(10.8, 106.6, 10.7, 106.7, "rider-1", new BigDecimal("50000")), t0);
+    state.advance(1L, t0);
+    state.apply(TripEventLog.TRIP_ACCEPTED, Map.of("driverId", "driver-9"), t0.plusMinutes(1));
+    state.advance(2L, t0.plusMinutes(1));
+    state.apply(TripEventLog.TRIP_STARTED, Map.of("driverId", "driver-9"), t0.plusMinutes(5));
+    state.advance(3L, t0.plusMinutes(5));
+
+    assertThat(state.getStatus()).isEqualTo(TripStatus.ONGOING);
+    assertThat(state.getRiderId()).isEqualTo("rider-1");
+    assertThat(state.getDriverId()).isEqualTo("driver-9");
+    assertThat(state.getEventCount()).isEqualTo(3);
+    assertThat(state.isTerminal()).isFalse();
+
+    state.apply(TripEventLog.TRIP_EXPIRED, null, t0.plusMinutes(30));
+    assertThat(state.getStatus()).isEqualTo(TripStatus.CANCELLED);
+    assertThat(state.isTerminal()).isTrue();
+  }
+}
@@ -0,0 +1,35 @@
+package com.example.trip_service.surge;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+
+class SlidingWindowCounterTest {
+  private final SlidingWindowCounter counter = new SlidingWindowCounter(1000, 5);
+
+  @Test
+  void sumCoversOnlyTheLastBuckets() {
+    counter.add(0, 3);
+    counter.add(1500, 2);
+    counter.add(4999, 1);
+
+    assertThat(counter.sum(4999)).isEqualTo(6);
+    // bucket 0 left the window, bucket 5 reuses its slot
+    counter.add(5000, 4);
+    assertThat(counter.sum(5000)).isEqualTo(7);
+    assertThat(counter.sum(20000)).isZero();
+  }
+
+  @Test
+  void averageUsesFilledBucketsOnly() {
+    counter.sample(0, 10);
+    counter.sample(500, 4);
+    counter.sample(2000, 20);
+
+    assertThat(counter.hasCurrent(2500)).isTrue();
+    assertThat(counter.hasCurrent(3000)).isFalse();
+    assertThat(counter.hasAny(6000)).isTrue();
+    assertThat(counter.hasAny(7000)).isFalse();
+    assertThat(counter.average(2500)).isEqualTo(15.0d);
+  }
+}